@@ -0,0 +1,42 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link com.example.chapter4_challenge_diarymanager_gui.FileManager#clearAllEntries()}.
+ * Each measurement clears a freshly generated diary once, so this runs in single-shot mode.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClearBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FreshDiary extends DiaryFixture {
+        @Param({"1000", "10000", "100000"})
+        public int entries;
+
+        @Param({"directory", "journal"})
+        public String store;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            open(store, entries);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            close();
+        }
+    }
+
+    @Benchmark
+    public void clearAllEntries(FreshDiary diary) throws IOException {
+        diary.fileManager.clearAllEntries();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.DiaryEntry;
+import com.example.chapter4_challenge_diarymanager_gui.EntryCodec;
+import com.example.chapter4_challenge_diarymanager_gui.EntryMetadata;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The CPU cost of compressed storage against the bytes it saves. {@code encode} and
+ * {@code decode} time the codec alone on generated bodies. {@code read} and {@code save}
+ * go through {@link com.example.chapter4_challenge_diarymanager_gui.FileManager} with and
+ * without compression; {@code read} skips the content cache, so every call reads and
+ * decodes the stored bytes. Each trial prints the size of the diary on disk, for the
+ * footprint half of the tradeoff. Reads are served from the OS page cache once warm, so
+ * on a cold disk the compressed layout does comparatively better than measured here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+    private static final int BODIES = 100;
+
+    @State(Scope.Thread)
+    public static class Bodies {
+        final String[] bodies = new String[BODIES];
+        final ByteBuffer[] compressed = new ByteBuffer[BODIES];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            long plainBytes = 0;
+            long compressedBytes = 0;
+            for (int i = 0; i < BODIES; i++) {
+                bodies[i] = Corpus.content(i, Corpus.Profile.DEFAULT);
+                byte[] encoded = EntryCodec.DEFLATE.encode(bodies[i]);
+                compressed[i] = ByteBuffer.wrap(encoded);
+                plainBytes += EntryCodec.PLAIN.encode(bodies[i]).length;
+                compressedBytes += encoded.length;
+            }
+            System.out.printf(Locale.ROOT, "%nBodies: %d bytes plain, %d compressed (%.1f%%)%n",
+                    plainBytes, compressedBytes, 100.0 * compressedBytes / plainBytes);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class StoredDiary extends DiaryFixture {
+        @Param({"10000"})
+        public int entries;
+
+        @Param({"directory", "journal"})
+        public String store;
+
+        @Param({"none", "deflate"})
+        public String compression;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            open(store, compression, entries);
+            System.out.printf(Locale.ROOT, "%nOn disk: %.1f MB (%s, %s)%n",
+                    diskBytes(diaryDir) / 1e6, store, compression);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final Random random = new Random(7);
+    }
+
+    @Benchmark
+    public byte[] encode(Bodies bodies) {
+        return EntryCodec.DEFLATE.encode(bodies.bodies[bodies.next++ % BODIES]);
+    }
+
+    @Benchmark
+    public ByteBuffer decode(Bodies bodies) throws IOException {
+        return EntryCodec.decode(bodies.compressed[bodies.next++ % BODIES].duplicate());
+    }
+
+    /** The baseline for {@link #encode}: what storing plain UTF-8 costs. */
+    @Benchmark
+    public byte[] encodePlain(Bodies bodies) {
+        return EntryCodec.PLAIN.encode(bodies.bodies[bodies.next++ % BODIES]);
+    }
+
+    @Benchmark
+    public ByteBuffer read(StoredDiary diary, Cursor cursor) throws IOException {
+        return diary.fileManager.readEntryBytes(diary.randomTitle(cursor.random));
+    }
+
+    @Benchmark
+    public EntryMetadata save(StoredDiary diary, Bodies bodies, Cursor cursor) throws IOException {
+        return diary.fileManager.saveEntry(new DiaryEntry(diary.randomTitle(cursor.random),
+                bodies.bodies[bodies.next++ % BODIES]));
+    }
+
+    // Entry storage only; the hidden metadata and search index files are the same either way
+    private static long diskBytes(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith("."))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@code --name value} options for the command-line tools in this module. */
+final class CommandLine {
+    private final Map<String, String> options = new HashMap<>();
+
+    CommandLine(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+    }
+
+    boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    String get(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        return has(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    long getLong(String name, long defaultValue) {
+        return has(name) ? Long.parseLong(options.get(name)) : defaultValue;
+    }
+
+    double getDouble(String name, double defaultValue) {
+        return has(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+
+    /** Reads the corpus shape options, falling back to {@link Corpus.Profile#DEFAULT}. */
+    Corpus.Profile profile() {
+        Corpus.Profile defaults = Corpus.Profile.DEFAULT;
+        return new Corpus.Profile(
+                getLong("seed", defaults.seed()),
+                getInt("median-bytes", defaults.medianBytes()),
+                getDouble("size-sigma", defaults.sizeSigma()),
+                getDouble("tables", defaults.tableRate()),
+                getDouble("images", defaults.imageRate()),
+                getInt("days", defaults.spreadDays()));
+    }
+}
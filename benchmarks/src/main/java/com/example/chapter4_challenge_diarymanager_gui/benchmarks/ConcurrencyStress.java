@@ -0,0 +1,189 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.ByteCharSequence;
+import com.example.chapter4_challenge_diarymanager_gui.DiaryEntry;
+import com.example.chapter4_challenge_diarymanager_gui.EntryMetadata;
+import com.example.chapter4_challenge_diarymanager_gui.FileManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers one {@link FileManager} with concurrent writers and readers and checks that it
+ * never shows a torn entry or loses an update. Exits with status 1 if a check fails.
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.chapter4_challenge_diarymanager_gui.benchmarks.ConcurrencyStress \
+ *     [--store directory|journal] [--writers 4] [--readers 4] [--titles 16] [--seconds 10]
+ * </pre>
+ * Every saved body repeats a single stamp ({@code writer.sequence}), so a read that mixes
+ * two saves is caught. Half the titles are shared by all writers; the others each belong
+ * to one writer, which remembers what it saved last. At the end the diary is reopened
+ * from disk and every owned entry must hold exactly its last save, and every entry's
+ * metadata must match its content.
+ */
+public final class ConcurrencyStress {
+    private static final int STAMP_REPEATS = 200;
+
+    private ConcurrencyStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLine options = new CommandLine(args);
+        String storeType = options.get("store", "directory");
+        int writers = options.getInt("writers", 4);
+        int readers = options.getInt("readers", 4);
+        int titleCount = Math.max(2, options.getInt("titles", 16));
+        int seconds = options.getInt("seconds", 10);
+
+        Path dir = Files.createTempDirectory("diary-stress");
+        List<String> shared = new ArrayList<>();
+        for (int i = 0; i < titleCount / 2; i++) shared.add("shared " + i);
+        Map<String, String> lastSaved = new ConcurrentHashMap<>();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong saves = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        FileManager fileManager = new FileManager(dir, Corpus.openStore(storeType, dir));
+        CountDownLatch done = new CountDownLatch(writers + readers + 1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            List<String> owned = new ArrayList<>();
+            for (int i = writer; i < titleCount - shared.size(); i += writers) owned.add("owned " + i);
+            threads.add(new Thread(() -> {
+                Random random = new Random(writer);
+                long sequence = 0;
+                try {
+                    while (running.get()) {
+                        boolean useOwned = !owned.isEmpty() && random.nextBoolean();
+                        String title = useOwned ? owned.get(random.nextInt(owned.size()))
+                                : shared.get(random.nextInt(shared.size()));
+                        String content = body(writer + "." + sequence++);
+                        if (random.nextInt(20) == 0) {
+                            fileManager.deleteEntry(title);
+                            if (useOwned) lastSaved.remove(title);
+                        } else {
+                            fileManager.saveEntry(new DiaryEntry(title, content));
+                            if (useOwned) lastSaved.put(title, content);
+                        }
+                        saves.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    failures.add("writer " + writer + ": " + e);
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-writer-" + w));
+        }
+        List<String> allTitles = new ArrayList<>(shared);
+        for (int i = 0; i < titleCount - shared.size(); i++) allTitles.add("owned " + i);
+        for (int r = 0; r < readers; r++) {
+            int reader = r;
+            threads.add(new Thread(() -> {
+                Random random = new Random(1000 + reader);
+                try {
+                    while (running.get()) {
+                        String title = allTitles.get(random.nextInt(allTitles.size()));
+                        try {
+                            String content = random.nextBoolean()
+                                    ? fileManager.readEntry(title)
+                                    : new ByteCharSequence(fileManager.readEntryBytes(title)).toString();
+                            if (!isWhole(content)) failures.add("torn read of " + title);
+                        } catch (NoSuchFileException e) {
+                            // Deleted by a writer; a valid outcome
+                        }
+                        reads.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    failures.add("reader " + reader + ": " + e);
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-reader-" + r));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                while (running.get()) {
+                    List<EntryMetadata> listing = fileManager.listEntriesMetadata();
+                    Set<String> titles = new HashSet<>();
+                    for (EntryMetadata metadata : listing) {
+                        if (!titles.add(metadata.getTitle())) failures.add("listed twice: " + metadata.getTitle());
+                    }
+                    fileManager.search("stamp");
+                }
+            } finally {
+                done.countDown();
+            }
+        }, "stress-lister"));
+
+        System.out.printf("Running %d writers and %d readers on %d titles for %d s (%s store)%n",
+                writers, readers, titleCount, seconds, storeType);
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        fileManager.close();
+
+        // Reopen from disk so nothing is served from the cache or the in-memory indexes
+        FileManager reopened = new FileManager(dir, Corpus.openStore(storeType, dir));
+        for (String title : allTitles) {
+            String expected = lastSaved.get(title);
+            String actual;
+            try {
+                actual = reopened.readEntry(title);
+            } catch (NoSuchFileException e) {
+                actual = null;
+            }
+            if (title.startsWith("owned") && !Objects.equals(expected, actual)) {
+                failures.add("lost update of " + title);
+            }
+            EntryMetadata metadata = reopened.getEntryMetadata(title);
+            if ((metadata == null) != (actual == null)) {
+                failures.add("metadata out of step for " + title);
+            } else if (actual != null && metadata.getSize() != actual.getBytes(StandardCharsets.UTF_8).length) {
+                failures.add("metadata size out of step for " + title);
+            }
+        }
+        reopened.close();
+        Corpus.delete(dir);
+
+        System.out.printf("%d saves and deletes, %d reads%n", saves.get(), reads.get());
+        if (!failures.isEmpty()) {
+            failures.stream().distinct().limit(20).forEach(failure -> System.out.println("FAILED: " + failure));
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static String body(String stamp) {
+        StringBuilder body = new StringBuilder("<html><body>");
+        for (int i = 0; i < STAMP_REPEATS; i++) {
+            body.append("<p>stamp ").append(stamp).append("</p>");
+        }
+        return body.append("</body></html>").toString();
+    }
+
+    // True if the content is one complete body, all of it from the same save
+    private static boolean isWhole(String content) {
+        int start = content.indexOf("stamp ");
+        if (start < 0) return false;
+        String stamp = content.substring(start + 6, content.indexOf('<', start));
+        return content.equals(body(stamp));
+    }
+}
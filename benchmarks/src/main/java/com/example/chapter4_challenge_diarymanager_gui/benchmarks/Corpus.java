@@ -0,0 +1,170 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.DirectoryEntryStore;
+import com.example.chapter4_challenge_diarymanager_gui.EntryCodec;
+import com.example.chapter4_challenge_diarymanager_gui.EntryStore;
+import com.example.chapter4_challenge_diarymanager_gui.JournalEntryStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic synthetic diary: the same profile and size always give the same titles
+ * and bodies. Bodies look like what the HTMLEditor produces, with word frequencies
+ * skewed towards a small core vocabulary the way real text is.
+ */
+public final class Corpus {
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String[] WORDS = {
+            "the", "and", "today", "i", "was", "to", "a", "of", "it", "felt", "we", "in", "my", "that",
+            "morning", "evening", "work", "friend", "walk", "coffee", "rain", "sun", "meeting", "book",
+            "dinner", "family", "tired", "happy", "quiet", "long", "small", "garden", "project", "idea",
+            "train", "city", "music", "letter", "river", "kitchen", "market", "weekend", "plan", "goal",
+            "reflection", "gratitude", "lesson", "question", "answer", "journey", "window", "bicycle",
+            "mountain", "ocean", "phone", "office", "deadline", "holiday", "birthday", "recipe", "habit",
+            "exercise", "sleep", "dream", "memory", "photograph", "neighbour", "conversation", "decision",
+            "well-being", "don't", "couldn't", "caf\u00e9", "na\u00efve", "\u00fcber", "r\u00e9sum\u00e9"
+    };
+
+    private Corpus() {
+    }
+
+    /** Title of the i-th generated entry. */
+    public static String title(int index) {
+        return String.format("Entry %06d", index);
+    }
+
+    /**
+     * Shape of a generated diary. Entry sizes follow a log-normal distribution around
+     * {@code medianBytes}; {@code tableRate} and {@code imageRate} are the share of entries
+     * that contain a table or image as inserted by the editor toolbar; dates are spread
+     * over the {@code spreadDays} days before now.
+     */
+    public record Profile(long seed, int medianBytes, double sizeSigma, double tableRate, double imageRate,
+                          int spreadDays) {
+        public static final Profile DEFAULT = new Profile(DEFAULT_SEED, 1500, 0.5, 0.05, 0.05, 3 * 365);
+
+        public Profile withSeed(long newSeed) {
+            return new Profile(newSeed, medianBytes, sizeSigma, tableRate, imageRate, spreadDays);
+        }
+    }
+
+    /** Body of the i-th generated entry. */
+    public static String content(int index, Profile profile) {
+        Random random = new Random(profile.seed() * 31 + index);
+        int targetBytes = (int) Math.min(Integer.MAX_VALUE / 2,
+                profile.medianBytes() * Math.exp(profile.sizeSigma() * random.nextGaussian()));
+        boolean table = random.nextDouble() < profile.tableRate();
+        boolean image = random.nextDouble() < profile.imageRate();
+
+        StringBuilder html = new StringBuilder(targetBytes + 256);
+        html.append("<html dir=\"ltr\"><head></head><body contenteditable=\"true\">");
+        do {
+            paragraph(html, random);
+            if (table && random.nextInt(3) == 0) {
+                table(html, 1 + random.nextInt(5), 1 + random.nextInt(4));
+                table = false;
+            }
+            if (image && random.nextInt(3) == 0) {
+                html.append("<img src=\"https://picsum.photos/400/300?random=").append(index)
+                        .append("\" alt=\"Image\" style=\"max-width: 100%;\">");
+                image = false;
+            }
+        } while (html.length() < targetBytes);
+        return html.append("</body></html>").toString();
+    }
+
+    private static void paragraph(StringBuilder html, Random random) {
+        html.append("<p>");
+        int words = 20 + random.nextInt(40);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) html.append(' ');
+            String word = word(random);
+            if (random.nextInt(25) == 0) {
+                html.append("<b>").append(word).append("</b>");
+            } else {
+                html.append(word);
+            }
+            if (random.nextInt(12) == 0) html.append(random.nextBoolean() ? "," : "&nbsp;&mdash;");
+        }
+        html.append(".</p>");
+    }
+
+    // Same markup as DashboardController.createTableHTML
+    private static void table(StringBuilder html, int rows, int cols) {
+        html.append("<table style='border-collapse: collapse; width: 100%; margin: 10px 0; border: 1px solid #ddd;'>");
+        for (int i = 0; i < rows; i++) {
+            html.append("<tr>");
+            for (int j = 0; j < cols; j++) {
+                html.append("<td style='border: 1px solid #ddd; padding: 8px;'>Cell ")
+                        .append(i + 1).append("-").append(j + 1).append("</td>");
+            }
+            html.append("</tr>");
+        }
+        html.append("</table><p><br></p>");
+    }
+
+    /** A word from the corpus vocabulary, skewed towards the common ones. */
+    public static String word(Random random) {
+        double skewed = random.nextDouble() * random.nextDouble();
+        return WORDS[(int) (skewed * WORDS.length)];
+    }
+
+    /** Modification time of the i-th entry: a random moment in the profile's date spread before {@code now}. */
+    public static LocalDateTime modified(int index, Profile profile, LocalDateTime now) {
+        Random random = new Random(profile.seed() * 17 + index);
+        long spreadMinutes = Math.max(1, (long) profile.spreadDays() * 24 * 60);
+        return now.minusMinutes((long) (random.nextDouble() * spreadMinutes));
+    }
+
+    /** Fills a store with {@code entries} generated entries. */
+    public static void populate(EntryStore store, int entries, Profile profile) throws IOException {
+        populate(store, entries, profile, done -> { });
+    }
+
+    /** Fills a store with generated entries, reporting the number written after each one. */
+    public static void populate(EntryStore store, int entries, Profile profile, IntConsumer progress) throws IOException {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < entries; i++) {
+            store.importEntry(title(i), content(i, profile), modified(i, profile, now));
+            progress.accept(i + 1);
+        }
+    }
+
+    /** Opens the named store type ({@code directory} or {@code journal}) in a diary directory. */
+    public static EntryStore openStore(String type, Path diaryDir) throws IOException {
+        return openStore(type, diaryDir, EntryCodec.PLAIN);
+    }
+
+    public static EntryStore openStore(String type, Path diaryDir, EntryCodec codec) throws IOException {
+        return "journal".equals(type)
+                ? new JournalEntryStore(diaryDir.resolve("journal"), codec)
+                : new DirectoryEntryStore(diaryDir, codec);
+    }
+
+    /** The codec for a {@code --compression} or benchmark parameter value: {@code none} or {@code deflate}. */
+    public static EntryCodec codec(String name) {
+        return switch (name) {
+            case "none" -> EntryCodec.PLAIN;
+            case "deflate" -> EntryCodec.DEFLATE;
+            default -> throw new IllegalArgumentException("Unknown compression: " + name);
+        };
+    }
+
+    /** Deletes a diary directory created for a benchmark. */
+    public static void delete(Path directory) throws IOException {
+        if (Files.notExists(directory)) return;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
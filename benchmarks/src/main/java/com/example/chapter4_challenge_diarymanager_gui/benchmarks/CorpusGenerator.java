@@ -0,0 +1,54 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.EntryStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Fills a diary directory with generated entries. The result can be opened by the
+ * application (point it at the directory, or use {@code diary_entries}) or by the
+ * load driver.
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.chapter4_challenge_diarymanager_gui.benchmarks.CorpusGenerator \
+ *     --dir diary_entries --entries 10000 [--store directory|journal] [--compression none|deflate] [--seed 42]
+ *     [--median-bytes 1500] [--size-sigma 0.5] [--tables 0.05] [--images 0.05] [--days 1095]
+ * </pre>
+ * With {@code --store journal} the entries go into {@code <dir>/journal}; start the
+ * application with {@code -Ddiary.store=journal} to use them. With {@code --compression deflate}
+ * the entries are stored compressed, as with {@code -Ddiary.compression=deflate}.
+ */
+public final class CorpusGenerator {
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLine options = new CommandLine(args);
+        Path dir = Paths.get(options.get("dir", "diary_entries"));
+        int entries = options.getInt("entries", 1000);
+        String storeType = options.get("store", "directory");
+        String compression = options.get("compression", "none");
+        Corpus.Profile profile = options.profile();
+
+        Files.createDirectories(dir);
+        if ("journal".equals(storeType)) {
+            // Stops the application from importing the directory layout over the generated journal
+            Files.createDirectories(dir.resolve("journal"));
+            Files.writeString(dir.resolve("journal").resolve(".migrated"), "generated\n");
+        }
+        long start = System.nanoTime();
+        int step = Math.max(1, entries / 10);
+        try (EntryStore store = Corpus.openStore(storeType, dir, Corpus.codec(compression))) {
+            Corpus.populate(store, entries, profile, done -> {
+                if (done % step == 0 || done == entries) {
+                    System.out.printf("%d/%d entries%n", done, entries);
+                }
+            });
+        }
+        System.out.printf("Wrote %d entries to %s (%s store) in %.1f s; %s%n", entries, dir, storeType,
+                (System.nanoTime() - start) / 1e9, profile);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.EntryStore;
+import com.example.chapter4_challenge_diarymanager_gui.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/** A generated diary on disk with a {@link FileManager} open on it. */
+abstract class DiaryFixture {
+    Path diaryDir;
+    FileManager fileManager;
+    int size;
+
+    void open(String storeType, int entries) throws IOException {
+        open(storeType, "none", entries);
+    }
+
+    void open(String storeType, String compression, int entries) throws IOException {
+        size = entries;
+        diaryDir = Files.createTempDirectory("diary-bench");
+        EntryStore store = Corpus.openStore(storeType, diaryDir, Corpus.codec(compression));
+        Corpus.populate(store, entries, Corpus.Profile.DEFAULT);
+        fileManager = new FileManager(diaryDir, store);
+    }
+
+    void close() throws IOException {
+        fileManager.close();
+        Corpus.delete(diaryDir);
+    }
+
+    String randomTitle(Random random) {
+        return Corpus.title(random.nextInt(size));
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/** A diary shared by all benchmark threads, for every corpus size and storage backend. */
+@State(Scope.Benchmark)
+public class DiaryState extends DiaryFixture {
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    @Param({"directory", "journal"})
+    public String store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        open(store, entries);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        close();
+    }
+}
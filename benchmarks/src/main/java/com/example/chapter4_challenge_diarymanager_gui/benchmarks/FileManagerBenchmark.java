@@ -0,0 +1,71 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.DiaryEntry;
+import com.example.chapter4_challenge_diarymanager_gui.EntryMetadata;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Single-entry operations of {@link com.example.chapter4_challenge_diarymanager_gui.FileManager}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileManagerBenchmark {
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final Random random = new Random(7);
+        // Bodies are generated up front so the benchmarks measure storage, not the generator
+        final String[] bodies = new String[64];
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 0; i < bodies.length; i++) {
+                bodies[i] = Corpus.content(-1 - i, Corpus.Profile.DEFAULT);
+            }
+        }
+
+        String nextBody() {
+            return bodies[random.nextInt(bodies.length)];
+        }
+    }
+
+    /** Overwrites a random existing entry with new content. */
+    @Benchmark
+    public EntryMetadata saveEntry(DiaryState diary, Cursor cursor) throws IOException {
+        return diary.fileManager.saveEntry(new DiaryEntry(diary.randomTitle(cursor.random), cursor.nextBody()));
+    }
+
+    /** Reads random entries; at 10k entries and up most of them miss the content cache. */
+    @Benchmark
+    public String readEntry(DiaryState diary, Cursor cursor) throws IOException {
+        return diary.fileManager.readEntry(diary.randomTitle(cursor.random));
+    }
+
+    /** Reads the same entry over and over, so every read after the first is a cache hit. */
+    @Benchmark
+    public String readEntryCached(DiaryState diary) throws IOException {
+        return diary.fileManager.readEntry(Corpus.title(0));
+    }
+
+    @Benchmark
+    public List<EntryMetadata> listEntriesMetadata(DiaryState diary) {
+        return diary.fileManager.listEntriesMetadata();
+    }
+
+    /**
+     * Deletes a random entry and saves it again, so the corpus keeps its size.
+     * Subtract {@link #saveEntry} to get the cost of the delete alone.
+     */
+    @Benchmark
+    public EntryMetadata deleteEntry(DiaryState diary, Cursor cursor) throws IOException {
+        String title = diary.randomTitle(cursor.random);
+        diary.fileManager.deleteEntry(title);
+        return diary.fileManager.saveEntry(new DiaryEntry(title, cursor.nextBody()));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.DiaryEntry;
+import com.example.chapter4_challenge_diarymanager_gui.EntryMetadata;
+import com.example.chapter4_challenge_diarymanager_gui.FileManager;
+import com.example.chapter4_challenge_diarymanager_gui.TextEdit;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An autosave of one very large entry after a few words were typed, done the two ways the
+ * editor can: {@code fullSave} writes the whole entry, {@code appendEdits} appends only the
+ * edit to the entry's edit log. The log is consolidated by a full save before each
+ * iteration, as the editor does every minute.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalSaveBenchmark {
+    private static final String TITLE = "Long entry";
+
+    /** Entry size in KB. */
+    @Param({"64", "1024", "8192"})
+    public int sizeKb;
+
+    private Path diaryDir;
+    private FileManager fileManager;
+    private StringBuilder body;
+    private final Random random = new Random(13);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        diaryDir = Files.createTempDirectory("diary-bench");
+        fileManager = new FileManager(diaryDir);
+        body = new StringBuilder(sizeKb * 1024 + 1024);
+        for (int i = 0; body.length() < sizeKb * 1024; i++) {
+            body.append(Corpus.content(i, Corpus.Profile.DEFAULT));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void consolidate() throws IOException {
+        fileManager.saveEntry(new DiaryEntry(TITLE, body.toString()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileManager.close();
+        Corpus.delete(diaryDir);
+    }
+
+    @Benchmark
+    public EntryMetadata fullSave() throws IOException {
+        type();
+        return fileManager.saveEntry(new DiaryEntry(TITLE, body.toString()));
+    }
+
+    @Benchmark
+    public EntryMetadata appendEdits() throws IOException {
+        int lengthBefore = body.length();
+        TextEdit edit = type();
+        return fileManager.appendEdits(TITLE, lengthBefore, List.of(edit));
+    }
+
+    // Types a few words at a random point in the body, as between two autosaves
+    private TextEdit type() {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0, n = 1 + random.nextInt(6); i < n; i++) {
+            words.append(Corpus.word(random)).append(' ');
+        }
+        int offset = random.nextInt(body.length() + 1);
+        body.insert(offset, words);
+        return new TextEdit(offset, 0, words.toString());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/**
+ * A diary for benchmarks of the in-memory indexes, which do not depend on the storage
+ * backend, so only the corpus size varies.
+ */
+@State(Scope.Benchmark)
+public class IndexState extends DiaryFixture {
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        open("directory", entries);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        close();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+/**
+ * Fixed-size log-linear histogram of nanosecond latencies: 16 linear sub-buckets per
+ * power of two, so any percentile is within about 6% of the true value. Recording is
+ * allocation-free; histograms from several threads are combined with {@link #add}.
+ * Not thread-safe.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long count;
+    private long max;
+    private long sum;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    double getMeanMicros() {
+        return count == 0 ? 0 : sum / (double) count / 1_000;
+    }
+
+    double getMaxMicros() {
+        return max / 1_000.0;
+    }
+
+    /** The latency at or below which {@code percentile} percent of the recorded values fall, in microseconds. */
+    double getPercentileMicros(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(upperBoundOf(i), max) / 1_000.0;
+            }
+        }
+        return max / 1_000.0;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = (1L << magnitude) | (subBucket << (magnitude - SUB_BUCKET_BITS));
+        return lower + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+}
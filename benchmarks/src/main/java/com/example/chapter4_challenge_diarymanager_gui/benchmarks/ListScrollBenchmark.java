@@ -0,0 +1,216 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.EntryListCell;
+import com.example.chapter4_challenge_diarymanager_gui.EntryMetadata;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Scrolls the entry list over a large diary, headless, and reports frame times and
+ * garbage for two cell implementations:
+ * <ul>
+ * <li>{@code rebuilt}: the original cell factory, which builds a new {@code VBox}, two
+ * {@code Label}s with inline styles and a date formatter on every update, and lets the
+ * list measure each cell;</li>
+ * <li>{@code reused}: {@link EntryListCell} with the app's stylesheet and fixed cell size.</li>
+ * </ul>
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.chapter4_challenge_diarymanager_gui.benchmarks.ListScrollBenchmark \
+ *     [--cell rebuilt|reused|both] [--entries 50000] [--frames 3000] [--step 120] [--warmup 500]
+ * </pre>
+ * Each frame scrolls the list's {@link VirtualFlow} by {@code step} pixels, down to the end
+ * and back up, then runs CSS and layout ("layout") and renders the scene to an image
+ * ("frame", layout included). Runs on Monocle's headless platform with the software
+ * pipeline, so the numbers compare the cells with each other, not with a real screen.
+ * Allocation is what the FX thread allocated during the measured frames.
+ */
+public final class ListScrollBenchmark {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 800;
+    private static final double FIXED_CELL_SIZE = 52;
+    private static final String STYLESHEET = "/com/example/chapter4_challenge_diarymanager_gui/styles.css";
+
+    private record Result(String cell, int frames, LatencyHistogram layout, LatencyHistogram frame,
+                          long allocatedBytes, long gcCount, long gcMillis) {}
+
+    private ListScrollBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLine options = new CommandLine(args);
+        String cell = options.get("cell", "both");
+        int entries = options.getInt("entries", 50_000);
+        int frames = options.getInt("frames", 3_000);
+        int warmup = options.getInt("warmup", 500);
+        double step = options.getDouble("step", 120);
+
+        // Headless unless the caller picked a platform
+        setDefault("glass.platform", "Monocle");
+        setDefault("monocle.platform", "Headless");
+        setDefault("prism.order", "sw");
+        Platform.startup(() -> { });
+
+        List<EntryMetadata> items = items(entries, options.profile());
+        List<String> cells = cell.equals("both") ? List.of("rebuilt", "reused") : List.of(cell);
+        System.out.printf("Scrolling %d entries, %d frames of %.0f px per cell type%n", entries, frames, step);
+        for (String name : cells) {
+            CompletableFuture<Result> result = new CompletableFuture<>();
+            Platform.runLater(() -> {
+                try {
+                    result.complete(run(name, items, warmup, frames, step));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            print(result.get());
+        }
+        Platform.exit();
+    }
+
+    // Runs on the FX thread, as the list does in the app
+    private static Result run(String cell, List<EntryMetadata> items, int warmup, int frames, double step) {
+        ListView<EntryMetadata> list = new ListView<>(FXCollections.observableArrayList(items));
+        if (cell.equals("reused")) {
+            list.setCellFactory(view -> new EntryListCell());
+            list.setFixedCellSize(FIXED_CELL_SIZE);
+        } else if (cell.equals("rebuilt")) {
+            list.setCellFactory(view -> new RebuiltCell());
+        } else {
+            throw new IllegalArgumentException("Unknown cell type: " + cell);
+        }
+        StackPane root = new StackPane(list);
+        Scene scene = new Scene(root, WIDTH, HEIGHT);
+        scene.getStylesheets().add(ListScrollBenchmark.class.getResource(STYLESHEET).toExternalForm());
+        WritableImage image = new WritableImage(WIDTH, HEIGHT);
+        root.applyCss();
+        root.layout();
+        VirtualFlow<?> flow = (VirtualFlow<?>) list.lookup(".virtual-flow");
+
+        Scroller scroller = new Scroller(flow, step);
+        for (int i = 0; i < warmup; i++) {
+            scroller.next();
+            root.applyCss();
+            root.layout();
+            scene.snapshot(image);
+        }
+
+        LatencyHistogram layout = new LatencyHistogram();
+        LatencyHistogram frame = new LatencyHistogram();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < frames; i++) {
+            long start = System.nanoTime();
+            scroller.next();
+            root.applyCss();
+            root.layout();
+            long laidOut = System.nanoTime();
+            scene.snapshot(image);
+            long rendered = System.nanoTime();
+            layout.record(laidOut - start);
+            frame.record(rendered - start);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new Result(cell, frames, layout, frame, allocated, gcCount() - gcCountBefore, gcMillis() - gcMillisBefore);
+    }
+
+    private static void print(Result result) {
+        System.out.printf(Locale.ROOT, "%n%s cells:%n", result.cell());
+        print("layout", result.layout());
+        print("frame", result.frame());
+        System.out.printf(Locale.ROOT, "  allocated %.1f KB per frame, %d GCs taking %d ms%n",
+                result.allocatedBytes() / 1024.0 / result.frames(), result.gcCount(), result.gcMillis());
+    }
+
+    private static void print(String name, LatencyHistogram histogram) {
+        System.out.printf(Locale.ROOT, "  %-6s mean %8.1f us  p50 %8.1f us  p99 %8.1f us  max %8.1f us%n", name,
+                histogram.getMeanMicros(), histogram.getPercentileMicros(50), histogram.getPercentileMicros(99),
+                histogram.getMaxMicros());
+    }
+
+    private static List<EntryMetadata> items(int count, Corpus.Profile profile) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EntryMetadata> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime modified = Corpus.modified(i, profile, now);
+            items.add(new EntryMetadata(i + 1, Corpus.title(i), modified, modified, 0, 0));
+        }
+        return items;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) System.setProperty(property, value);
+    }
+
+    // Scrolls to the end of the list and back, over and over
+    private static final class Scroller {
+        private final VirtualFlow<?> flow;
+        private final double step;
+        private int direction = 1;
+
+        Scroller(VirtualFlow<?> flow, double step) {
+            this.flow = flow;
+            this.step = step;
+        }
+
+        void next() {
+            double moved = flow.scrollPixels(direction * step);
+            if (moved == 0) direction = -direction;
+        }
+    }
+
+    // The cell factory the list had before EntryListCell, kept as the baseline
+    private static final class RebuiltCell extends ListCell<EntryMetadata> {
+        @Override
+        protected void updateItem(EntryMetadata item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setGraphic(null);
+            } else {
+                String dateStr = item.getLastModified().format(DateTimeFormatter.ofPattern("dd MMM"));
+                VBox vBox = new VBox(0);
+                Label titleLabel = new Label(item.getTitle());
+                titleLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: inherit; -fx-font-size: 12px;");
+                Label dateLabel = new Label(dateStr);
+                dateLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: inherit; -fx-opacity: 0.7;");
+                vBox.getChildren().addAll(titleLabel, dateLabel);
+                setGraphic(vBox);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.DiaryEntry;
+import com.example.chapter4_challenge_diarymanager_gui.EntryMetadata;
+import com.example.chapter4_challenge_diarymanager_gui.EntryStore;
+import com.example.chapter4_challenge_diarymanager_gui.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Replays a mixed workload against {@link FileManager} from several threads and reports
+ * throughput and latency percentiles per operation.
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.chapter4_challenge_diarymanager_gui.benchmarks.LoadDriver \
+ *     [--dir diary] [--entries 10000] [--store directory|journal] [--compression none|deflate]
+ *     [--threads 8] [--seconds 30]
+ *     [--mix open=50,edit=15,autosave=20,search=10,delete=5] [--json results.json]
+ * </pre>
+ * Without {@code --dir} a temporary diary of {@code --entries} entries is generated (the
+ * corpus options of {@link CorpusGenerator} apply) and deleted afterwards. An existing
+ * diary is opened as is; its entries are modified by the run.
+ * <p>
+ * The operations mirror the editor: <b>open</b> reads an entry, <b>edit</b> reads an
+ * entry and saves it with a paragraph added, <b>autosave</b> saves the same entry three
+ * times in a row with small changes, <b>search</b> runs a one or two word query, and
+ * <b>delete</b> deletes an entry (only the delete is timed) and saves it again so the
+ * diary keeps its size.
+ */
+public final class LoadDriver {
+    private static final String[] OPERATIONS = {"open", "edit", "autosave", "search", "delete"};
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLine options = new CommandLine(args);
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        int seconds = options.getInt("seconds", 30);
+        int[] weights = parseMix(options.get("mix", "open=50,edit=15,autosave=20,search=10,delete=5"));
+        String storeType = options.get("store", "directory");
+        String compression = options.get("compression", "none");
+
+        boolean temporary = !options.has("dir");
+        Path dir = temporary ? Files.createTempDirectory("diary-load") : Paths.get(options.get("dir", ""));
+        EntryStore store = Corpus.openStore(storeType, dir, Corpus.codec(compression));
+        if (temporary) {
+            int entries = options.getInt("entries", 10_000);
+            System.out.printf("Generating %d entries in %s%n", entries, dir);
+            Corpus.populate(store, entries, options.profile());
+        }
+        FileManager fileManager = new FileManager(dir, store);
+        List<String> titles = fileManager.listEntries();
+        if (titles.isEmpty()) {
+            throw new IllegalStateException("No entries in " + dir);
+        }
+
+        System.out.printf("Running %d threads for %d s against %d entries (%s store)%n",
+                threads, seconds, titles.size(), storeType);
+        LatencyHistogram[][] histograms = new LatencyHistogram[threads][OPERATIONS.length];
+        long[] errors = new long[threads];
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                histograms[worker][op] = new LatencyHistogram();
+            }
+            Thread thread = new Thread(() -> {
+                Random random = new Random(worker);
+                try {
+                    while (running.get()) {
+                        int op = pick(weights, random);
+                        String title = titles.get(random.nextInt(titles.size()));
+                        try {
+                            long nanos = run(op, fileManager, title, random);
+                            histograms[worker][op].record(nanos);
+                        } catch (IOException e) {
+                            errors[worker]++;
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            workers.add(thread);
+        }
+
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        LatencyHistogram[] totals = new LatencyHistogram[OPERATIONS.length];
+        LatencyHistogram overall = new LatencyHistogram();
+        long errorCount = 0;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            totals[op] = new LatencyHistogram();
+            for (int t = 0; t < threads; t++) {
+                totals[op].add(histograms[t][op]);
+            }
+            overall.add(totals[op]);
+        }
+        for (long e : errors) errorCount += e;
+
+        printReport(totals, overall, elapsed, errorCount);
+        if (options.has("json")) {
+            Files.writeString(Paths.get(options.get("json", "")),
+                    toJson(totals, overall, elapsed, errorCount, threads, titles.size(), storeType));
+        }
+
+        fileManager.close();
+        if (temporary) Corpus.delete(dir);
+    }
+
+    // Runs one operation and returns how long the timed part took
+    private static long run(int op, FileManager fileManager, String title, Random random) throws IOException {
+        long start = System.nanoTime();
+        switch (OPERATIONS[op]) {
+            case "open" -> fileManager.readEntry(title);
+            case "edit" -> {
+                String content = readOrEmpty(fileManager, title);
+                fileManager.saveEntry(new DiaryEntry(title, addParagraph(content, random)));
+            }
+            case "autosave" -> {
+                String content = readOrEmpty(fileManager, title);
+                for (int i = 0; i < 3; i++) {
+                    content = content + Corpus.word(random);
+                    fileManager.saveEntry(new DiaryEntry(title, content));
+                }
+            }
+            case "search" -> fileManager.search(random.nextBoolean()
+                    ? Corpus.word(random)
+                    : Corpus.word(random) + " " + Corpus.word(random));
+            case "delete" -> {
+                EntryMetadata metadata = fileManager.getEntryMetadata(title);
+                if (metadata == null) return System.nanoTime() - start;
+                String content = fileManager.readEntry(title);
+                start = System.nanoTime();
+                fileManager.deleteEntry(title);
+                long nanos = System.nanoTime() - start;
+                fileManager.saveEntry(new DiaryEntry(title, content));
+                return nanos;
+            }
+            default -> throw new IllegalStateException(OPERATIONS[op]);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // Another thread may have the entry deleted for a moment
+    private static String readOrEmpty(FileManager fileManager, String title) throws IOException {
+        try {
+            return fileManager.readEntry(title);
+        } catch (NoSuchFileException e) {
+            return "";
+        }
+    }
+
+    private static String addParagraph(String content, Random random) {
+        StringBuilder paragraph = new StringBuilder("<p>");
+        for (int i = 0; i < 12; i++) {
+            paragraph.append(Corpus.word(random)).append(' ');
+        }
+        paragraph.append("</p>");
+        int end = content.lastIndexOf("</body>");
+        return end < 0 ? content + paragraph : content.substring(0, end) + paragraph + content.substring(end);
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            int op = List.of(OPERATIONS).indexOf(pair[0]);
+            if (op < 0 || pair.length != 2) {
+                throw new IllegalArgumentException("Unknown operation in --mix: " + part);
+            }
+            weights[op] = Integer.parseInt(pair[1]);
+        }
+        return weights;
+    }
+
+    private static int pick(int[] weights, Random random) {
+        int total = 0;
+        for (int weight : weights) total += weight;
+        int ticket = random.nextInt(total);
+        for (int op = 0; op < weights.length; op++) {
+            ticket -= weights[op];
+            if (ticket < 0) return op;
+        }
+        return weights.length - 1;
+    }
+
+    private static void printReport(LatencyHistogram[] totals, LatencyHistogram overall, double elapsed, long errors) {
+        System.out.printf("%n%-9s %10s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            printRow(OPERATIONS[op], totals[op], elapsed);
+        }
+        printRow("all", overall, elapsed);
+        System.out.printf("errors: %d%n", errors);
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, double elapsed) {
+        System.out.printf("%-9s %10d %10.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(),
+                histogram.getCount() / elapsed, histogram.getPercentileMicros(50), histogram.getPercentileMicros(90),
+                histogram.getPercentileMicros(99), histogram.getPercentileMicros(99.9), histogram.getMaxMicros());
+    }
+
+    private static String toJson(LatencyHistogram[] totals, LatencyHistogram overall, double elapsed, long errors,
+                                 int threads, int entries, String storeType) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT,
+                "{\"threads\": %d, \"entries\": %d, \"store\": \"%s\", \"seconds\": %.3f, \"errors\": %d, \"operations\": {",
+                threads, entries, storeType, elapsed, errors));
+        for (int op = 0; op <= OPERATIONS.length; op++) {
+            String name = op < OPERATIONS.length ? OPERATIONS[op] : "all";
+            LatencyHistogram histogram = op < OPERATIONS.length ? totals[op] : overall;
+            if (op > 0) json.append(", ");
+            json.append(String.format(Locale.ROOT,
+                    "\"%s\": {\"count\": %d, \"opsPerSecond\": %.1f, \"meanUs\": %.1f, \"p50Us\": %.1f, "
+                            + "\"p90Us\": %.1f, \"p99Us\": %.1f, \"p999Us\": %.1f, \"maxUs\": %.1f}",
+                    name, histogram.getCount(), histogram.getCount() / elapsed, histogram.getMeanMicros(),
+                    histogram.getPercentileMicros(50), histogram.getPercentileMicros(90),
+                    histogram.getPercentileMicros(99), histogram.getPercentileMicros(99.9), histogram.getMaxMicros()));
+        }
+        return json.append("}}\n").toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.Metrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What instrumenting a call costs: one timer recording, from a single thread and from
+ * four at once on the same timer, as when several bulk workers save entries together.
+ * Compare with the {@link FileManagerBenchmark} timings it is added to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Registry {
+        final Metrics.Timer timer = new Metrics().timer("bench", "Benchmark timer.");
+    }
+
+    @Benchmark
+    public void record(Registry registry) {
+        registry.timer.record(System.nanoTime() & 0xFFFFF);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Registry registry) {
+        registry.timer.record(System.nanoTime() & 0xFFFFF);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.DiaryEntry;
+import com.example.chapter4_challenge_diarymanager_gui.EntryMetadata;
+import com.example.chapter4_challenge_diarymanager_gui.FileManager;
+import com.example.chapter4_challenge_diarymanager_gui.Revision;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Revision history for one entry that has been edited the way autosave sees it: a few
+ * words typed somewhere in the body between saves. {@code save} is the cost of an
+ * autosave including its revision; {@code readNewest}, {@code readOldest} and
+ * {@code readRandom} time rebuilding a version from its keyframe and deltas. Each trial
+ * prints the size of the history next to what full copies of every version would take.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RevisionBenchmark {
+    private static final String TITLE = "Edited entry";
+
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"100", "1000"})
+        public int revisions;
+
+        Path diaryDir;
+        FileManager fileManager;
+        StringBuilder body;
+        int[] numbers;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            diaryDir = Files.createTempDirectory("diary-bench");
+            fileManager = new FileManager(diaryDir);
+            body = new StringBuilder(Corpus.content(0, Corpus.Profile.DEFAULT));
+            Random random = new Random(7);
+            long fullCopies = 0;
+            for (int i = 0; i < revisions; i++) {
+                edit(body, random);
+                fileManager.saveEntry(new DiaryEntry(TITLE, body.toString()));
+                fullCopies += body.length();
+            }
+            List<Revision> kept = fileManager.listRevisions(TITLE);
+            numbers = kept.stream().mapToInt(Revision::getNumber).toArray();
+            System.out.printf(Locale.ROOT, "%nHistory: %d revisions kept, %d bytes on disk, %d as full copies (%.1f%%)%n",
+                    kept.size(), historyBytes(diaryDir), fullCopies, 100.0 * historyBytes(diaryDir) / fullCopies);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            fileManager.close();
+            Corpus.delete(diaryDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        final Random random = new Random(11);
+    }
+
+    /** An autosave after a small edit: the entry write plus appending its delta. */
+    @Benchmark
+    public EntryMetadata save(History history, Cursor cursor) throws IOException {
+        edit(history.body, cursor.random);
+        return history.fileManager.saveEntry(new DiaryEntry(TITLE, history.body.toString()));
+    }
+
+    /** The version the entry was last saved with, which is kept in memory. */
+    @Benchmark
+    public String readNewest(History history) throws IOException {
+        return history.fileManager.readRevision(TITLE, history.numbers[0]);
+    }
+
+    @Benchmark
+    public String readOldest(History history) throws IOException {
+        return history.fileManager.readRevision(TITLE, history.numbers[history.numbers.length - 1]);
+    }
+
+    @Benchmark
+    public String readRandom(History history, Cursor cursor) throws IOException {
+        return history.fileManager.readRevision(TITLE,
+                history.numbers[cursor.random.nextInt(history.numbers.length)]);
+    }
+
+    // Types a few words at a random point in the body, as between two autosaves
+    private static void edit(StringBuilder body, Random random) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0, n = 1 + random.nextInt(6); i < n; i++) {
+            words.append(Corpus.word(random)).append(' ');
+        }
+        body.insert(random.nextInt(body.length() + 1), words);
+    }
+
+    private static long historyBytes(Path diaryDir) throws IOException {
+        Path revisionsDir = diaryDir.resolve(".revisions");
+        if (Files.notExists(revisionsDir)) return 0;
+        try (Stream<Path> files = Files.list(revisionsDir)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.BulkResult;
+import com.example.chapter4_challenge_diarymanager_gui.EntryStats;
+import com.example.chapter4_challenge_diarymanager_gui.FileManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-diary passes on the fork-join corpus scanner, by worker count, for the speedup
+ * curve. {@code wordCount} is read and tokenize only, so it shows what the machine's
+ * cores and disk allow; {@code rebuildIndexes} adds the metadata, statistics and
+ * search index updates. Each call is a full pass, so this times single shots.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScanBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ScannedDiary extends DiaryFixture {
+        @Param({"10000", "100000"})
+        public int entries;
+
+        @Param({"directory", "journal"})
+        public String store;
+
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            open(store, entries);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            close();
+        }
+    }
+
+    @Benchmark
+    public long wordCount(ScannedDiary diary) throws IOException {
+        long[] words = diary.fileManager.scanEntries(diary.threads, () -> new long[1],
+                (total, metadata, content) -> total[0] += EntryStats.of(metadata.getTitle(), content,
+                        metadata.getCreated(), metadata.getLastModified()).getWordCount(),
+                (a, b) -> {
+                    a[0] += b[0];
+                    return a;
+                }, FileManager.BulkListener.NONE);
+        return words[0];
+    }
+
+    @Benchmark
+    public BulkResult rebuildIndexes(ScannedDiary diary) throws IOException {
+        return diary.fileManager.rebuildIndexes(diary.threads, FileManager.BulkListener.NONE);
+    }
+}
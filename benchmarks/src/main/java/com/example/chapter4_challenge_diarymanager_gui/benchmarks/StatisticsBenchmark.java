@@ -0,0 +1,44 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.EntryStats;
+import com.example.chapter4_challenge_diarymanager_gui.StatsAggregator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/** The statistics and calendar views, from the running totals and from a full rescan. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    /** What the statistics view reads: all figures come from running totals. */
+    @Benchmark
+    public long aggregated(IndexState diary) {
+        StatsAggregator stats = diary.fileManager.getStatistics();
+        EntryStats longest = stats.getLongestEntry();
+        return stats.getEntryCount() + stats.getTotalWords() + (long) stats.getAverageWords()
+                + stats.getCurrentStreak(LocalDate.now()) + (longest == null ? 0 : longest.getWordCount());
+    }
+
+    /** Recomputes the word total by reading and tokenizing every entry, as before the aggregator existed. */
+    @Benchmark
+    public long recomputeFromContent(IndexState diary) throws IOException {
+        long[] words = new long[1];
+        diary.fileManager.forEachEntry((metadata, content) ->
+                words[0] += EntryStats.of(metadata.getTitle(), content, metadata.getCreated(),
+                        metadata.getLastModified()).getWordCount());
+        return words[0];
+    }
+
+    /** What the calendar reads when showing a month. */
+    @Benchmark
+    public int[] calendarMonth(IndexState diary) {
+        return diary.fileManager.getCalendar().getEntryCounts(YearMonth.now());
+    }
+}
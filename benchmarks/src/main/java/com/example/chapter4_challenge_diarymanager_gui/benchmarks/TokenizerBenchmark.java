@@ -0,0 +1,48 @@
+package com.example.chapter4_challenge_diarymanager_gui.benchmarks;
+
+import com.example.chapter4_challenge_diarymanager_gui.HtmlTokenizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/** Word counting with {@link HtmlTokenizer} against the regex it replaced. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenizerBenchmark {
+    private static final int BODIES = 100;
+
+    private final String[] bodies = new String[BODIES];
+    private final ByteBuffer[] encodedBodies = new ByteBuffer[BODIES];
+    private final HtmlTokenizer tokenizer = new HtmlTokenizer();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < BODIES; i++) {
+            bodies[i] = Corpus.content(i, Corpus.Profile.DEFAULT);
+            encodedBodies[i] = ByteBuffer.wrap(bodies[i].getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public int tokenizer() {
+        return tokenizer.countWords(bodies[next++ % BODIES]);
+    }
+
+    @Benchmark
+    public int tokenizerUtf8() {
+        return tokenizer.tokenize(encodedBodies[next++ % BODIES], (buffer, length) -> { });
+    }
+
+    /** How the statistics view used to count words. */
+    @Benchmark
+    public int regex() {
+        return bodies[next++ % BODIES].replaceAll("<[^>]*>", "").trim().split("\\s+").length;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The {@link FileManager} bulk operations wrapped as JavaFX tasks. Each task reports
+ * progress and a status message as it goes, and stops starting new entries once it is
+ * cancelled; the entries already in flight are finished. Run the tasks on a background
+ * executor and read the {@link BulkResult} when they succeed. The entries themselves are
+ * read and written as tasks on {@code itemExecutor}.
+ */
+public class BulkOperations {
+    private final FileManager fileManager;
+    private final Executor itemExecutor;
+
+    public BulkOperations(FileManager fileManager, Executor itemExecutor) {
+        this.fileManager = fileManager;
+        this.itemExecutor = itemExecutor;
+    }
+
+    public Task<BulkResult> deleteEntries(List<String> titles) {
+        return new BulkTask("Deleting", "Deleted") {
+            @Override BulkResult perform() throws Exception {
+                return fileManager.deleteEntries(titles, itemExecutor, this);
+            }
+        };
+    }
+
+    /** Imports from folders, zip archives or single HTML and Markdown files. */
+    public Task<BulkResult> importEntries(List<Path> sources) {
+        return new BulkTask("Importing", "Imported") {
+            @Override BulkResult perform() throws Exception {
+                updateMessage("Looking for entries to import...");
+                return fileManager.importEntries(sources, itemExecutor, this);
+            }
+        };
+    }
+
+    /** Exports the entries in the format that matches the target's extension. */
+    public Task<BulkResult> exportEntries(List<EntryMetadata> entries, Path target) {
+        return new BulkTask("Exporting", "Exported") {
+            @Override BulkResult perform() throws Exception {
+                return fileManager.exportEntries(entries, target, ExportFormat.forTarget(target), itemExecutor, this);
+            }
+        };
+    }
+
+    /** Re-reads every entry and rebuilds the metadata, statistics and search index on all cores. */
+    public Task<BulkResult> rebuildIndexes() {
+        return new BulkTask("Rebuilding indexes:", "Reindexed") {
+            @Override BulkResult perform() throws Exception {
+                return fileManager.rebuildIndexes(this);
+            }
+        };
+    }
+
+    /** Clears the whole diary. This is a single store operation, so progress is indeterminate. */
+    public Task<Void> clearAllEntries() {
+        return new Task<>() {
+            @Override protected Void call() throws Exception {
+                updateMessage("Clearing all entries...");
+                fileManager.clearAllEntries();
+                return null;
+            }
+        };
+    }
+
+    private abstract static class BulkTask extends Task<BulkResult> implements FileManager.BulkListener {
+        private final String runningVerb;
+        private final String doneVerb;
+
+        BulkTask(String runningVerb, String doneVerb) {
+            this.runningVerb = runningVerb;
+            this.doneVerb = doneVerb;
+        }
+
+        @Override
+        public void progress(int done, int total) {
+            updateProgress(done, total);
+            updateMessage(runningVerb + " " + done + " of " + total + "...");
+        }
+
+        abstract BulkResult perform() throws Exception;
+
+        @Override
+        protected BulkResult call() throws Exception {
+            BulkResult result = perform();
+            updateMessage(result.describe(doneVerb));
+            return result;
+        }
+    }
+}
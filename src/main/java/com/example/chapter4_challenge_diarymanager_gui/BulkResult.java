@@ -0,0 +1,46 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk delete, import or export. One failed entry does not stop the rest;
+ * each failure is kept with the title (or file name) it belongs to.
+ */
+public final class BulkResult {
+    private final int total;
+    private final int completed;
+    private final Map<String, Exception> failures;
+    private final boolean cancelled;
+
+    BulkResult(int total, int completed, Map<String, Exception> failures, boolean cancelled) {
+        this.total = total;
+        this.completed = completed;
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        this.cancelled = cancelled;
+    }
+
+    /** Number of items the operation was asked to process. */
+    public int getTotal() { return total; }
+    /** Number of items processed successfully. */
+    public int getCompleted() { return completed; }
+    /** Items that failed, in the order they failed. */
+    public Map<String, Exception> getFailures() { return failures; }
+    /** True if the operation was cancelled before every item had been processed. */
+    public boolean isCancelled() { return cancelled; }
+
+    /** A one-line summary for the status bar. */
+    public String describe(String verb) {
+        StringBuilder text = new StringBuilder(verb).append(' ').append(completed).append(" of ").append(total)
+                .append(total == 1 ? " entry" : " entries");
+        if (!failures.isEmpty()) text.append(", ").append(failures.size()).append(" failed");
+        if (cancelled) text.append(" (cancelled)");
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return describe("Processed");
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs one step per item on the executor it is given, normally the I/O scheduler's
+ * storage lane. At most {@code parallelism} items are in flight at once, so a bulk
+ * operation over thousands of entries keeps a bounded number of files open and buffers
+ * in memory. A failed item is recorded in the result and the rest carry on; cancelling
+ * (or interrupting the calling thread) stops new items from starting.
+ */
+final class BulkRunner {
+    // Override with -Ddiary.bulk.threads
+    static final int DEFAULT_PARALLELISM =
+            Integer.getInteger("diary.bulk.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    @FunctionalInterface
+    interface Step<T> {
+        void run(T item) throws Exception;
+    }
+
+    @FunctionalInterface
+    interface Reader<T, R> {
+        R read(T item) throws Exception;
+    }
+
+    /** Consumes read results in item order. A failure here aborts the whole run. */
+    @FunctionalInterface
+    interface Writer<T, R> {
+        void write(T item, R value) throws IOException;
+    }
+
+    private BulkRunner() {
+    }
+
+    /** Runs the step for every item, in no particular order. */
+    static <T> BulkResult forEach(List<T> items, Function<T, String> name, int parallelism, Executor executor,
+                                  FileManager.BulkListener listener, Step<T> step) {
+        int total = items.size();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean();
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        listener.progress(0, total);
+
+        Callable<Void> worker = () -> {
+            int index;
+            while (!listener.isCancelled() && !stopped.get() && (index = next.getAndIncrement()) < total) {
+                T item = items.get(index);
+                try {
+                    step.run(item);
+                    completed.incrementAndGet();
+                } catch (Exception e) {
+                    synchronized (failures) {
+                        failures.put(name.apply(item), e);
+                    }
+                }
+                listener.progress(done.incrementAndGet(), total);
+            }
+            return null;
+        };
+        int threads = Math.max(1, Math.min(parallelism, total));
+        List<Future<Void>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.add(submit(executor, worker));
+            }
+            for (Future<Void> running : workers) {
+                running.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Items catch their own exceptions, so only the listener can get here
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } finally {
+            // The scheduler never interrupts its tasks, so workers are told to stop instead
+            stopped.set(true);
+        }
+        boolean cancelled = done.get() < total;
+        synchronized (failures) {
+            return new BulkResult(total, completed.get(), failures, cancelled);
+        }
+    }
+
+    /**
+     * Reads items in parallel and hands the results to the writer one at a time, in item
+     * order, for output that has to be written as a single stream. Reads run at most
+     * {@code parallelism} items ahead of the writer. Items whose read fails are skipped.
+     */
+    static <T, R> BulkResult inOrder(List<T> items, Function<T, String> name, int parallelism, Executor executor,
+                                     FileManager.BulkListener listener, Reader<T, R> reader,
+                                     Writer<T, R> writer) throws IOException {
+        int total = items.size();
+        int completed = 0;
+        int done = 0;
+        Map<String, Exception> failures = new LinkedHashMap<>();
+        listener.progress(0, total);
+
+        Deque<Future<R>> window = new ArrayDeque<>();
+        int submitted = 0;
+        try {
+            while (done < total && !listener.isCancelled()) {
+                while (submitted < total && window.size() < parallelism) {
+                    T item = items.get(submitted++);
+                    window.add(submit(executor, () -> reader.read(item)));
+                }
+                T item = items.get(done);
+                R value;
+                try {
+                    value = window.poll().get();
+                } catch (ExecutionException e) {
+                    failures.put(name.apply(item), e.getCause() instanceof Exception cause ? cause : e);
+                    listener.progress(++done, total);
+                    continue;
+                }
+                writer.write(item, value);
+                completed++;
+                listener.progress(++done, total);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Cancelled");
+        } finally {
+            // Reads that have not started yet are dropped
+            for (Future<R> read : window) {
+                read.cancel(false);
+            }
+        }
+        return new BulkResult(total, completed, failures, done < total);
+    }
+
+    private static <V> Future<V> submit(Executor executor, Callable<V> task) {
+        FutureTask<V> future = new FutureTask<>(task);
+        executor.execute(future);
+        return future;
+    }
+}
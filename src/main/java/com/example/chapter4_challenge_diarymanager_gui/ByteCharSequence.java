@@ -0,0 +1,55 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link CharSequence} view over a byte buffer that maps each byte to one char,
+ * without decoding or copying. This is exact for ASCII, which covers HTML markup and
+ * whitespace; a multi-byte UTF-8 character shows up as several non-whitespace chars.
+ * That is good enough for skipping tags and counting words, but use {@link #toString()}
+ * (which decodes properly) when the text itself is needed.
+ */
+public final class ByteCharSequence implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    public ByteCharSequence(ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.remaining());
+    }
+
+    private ByteCharSequence(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + length);
+        }
+        return new ByteCharSequence(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entries bucketed by the month and day they were created, so the calendar can show a
+ * month and open a day without looking at the rest of the diary. Kept in step with every
+ * write by {@link FileManager}; entries within a day are ordered newest first.
+ * <p>
+ * Reads are public; updates are package-private and go through {@link FileManager}.
+ * All methods are synchronized.
+ */
+public class CalendarIndex {
+    private static final Comparator<EntryMetadata> NEWEST_FIRST =
+            Comparator.comparing(EntryMetadata::getCreated).reversed()
+                    .thenComparing(EntryMetadata::getTitle);
+
+    // Index 0 is unused so the array can be indexed by day of month
+    private final Map<YearMonth, List<EntryMetadata>[]> months = new HashMap<>();
+    private final Map<String, EntryMetadata> byTitle = new HashMap<>();
+
+    /**
+     * Returns the number of entries on each day of the month, indexed by day of month
+     * (element 0 is unused). Months without entries give an array of zeros.
+     */
+    public synchronized int[] getEntryCounts(YearMonth month) {
+        int[] counts = new int[month.lengthOfMonth() + 1];
+        List<EntryMetadata>[] days = months.get(month);
+        if (days != null) {
+            for (int day = 1; day < counts.length; day++) {
+                if (days[day] != null) counts[day] = days[day].size();
+            }
+        }
+        return counts;
+    }
+
+    /** Returns the entries dated on the given day, newest first. */
+    public synchronized List<EntryMetadata> getEntriesOn(LocalDate date) {
+        List<EntryMetadata>[] days = months.get(YearMonth.from(date));
+        if (days == null || days[date.getDayOfMonth()] == null) return List.of();
+        return List.copyOf(days[date.getDayOfMonth()]);
+    }
+
+    /** Adds an entry, or moves it if an entry with the same title is already indexed. */
+    synchronized void put(EntryMetadata metadata) {
+        remove(metadata.getTitle());
+        List<EntryMetadata> day = dayBucket(metadata.getCreated().toLocalDate());
+        int position = Collections.binarySearch(day, metadata, NEWEST_FIRST);
+        day.add(position < 0 ? -position - 1 : position, metadata);
+        byTitle.put(metadata.getTitle(), metadata);
+    }
+
+    synchronized void remove(String title) {
+        EntryMetadata previous = byTitle.remove(title);
+        if (previous == null) return;
+        LocalDate date = previous.getCreated().toLocalDate();
+        YearMonth month = YearMonth.from(date);
+        List<EntryMetadata>[] days = months.get(month);
+        List<EntryMetadata> day = days[date.getDayOfMonth()];
+        day.remove(Collections.binarySearch(day, previous, NEWEST_FIRST));
+        if (day.isEmpty()) {
+            days[date.getDayOfMonth()] = null;
+            if (isEmpty(days)) months.remove(month);
+        }
+    }
+
+    synchronized void clear() {
+        months.clear();
+        byTitle.clear();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<EntryMetadata> dayBucket(LocalDate date) {
+        List<EntryMetadata>[] days = months.computeIfAbsent(YearMonth.from(date),
+                month -> (List<EntryMetadata>[]) new List[month.lengthOfMonth() + 1]);
+        if (days[date.getDayOfMonth()] == null) {
+            days[date.getDayOfMonth()] = new ArrayList<>(2);
+        }
+        return days[date.getDayOfMonth()];
+    }
+
+    private static boolean isEmpty(List<EntryMetadata>[] days) {
+        for (List<EntryMetadata> day : days) {
+            if (day != null) return false;
+        }
+        return true;
+    }
+}
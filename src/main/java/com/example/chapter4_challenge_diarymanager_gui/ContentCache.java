@@ -0,0 +1,91 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache of recently read entry content, evicting the least recently used
+ * entries once the total size passes the limit. Sizes are estimated as two bytes per
+ * char. All methods are synchronized.
+ */
+public class ContentCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ContentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns the cached content, or null on a miss. */
+    synchronized String get(String title) {
+        String content = entries.get(title);
+        if (content != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return content;
+    }
+
+    /** Like {@link #get}, but without counting a hit or miss. */
+    synchronized String peek(String title) {
+        return entries.get(title);
+    }
+
+    /** Checks for an entry without counting a hit or miss or touching its recency. */
+    synchronized boolean contains(String title) {
+        return entries.containsKey(title);
+    }
+
+    /**
+     * Caches content that was just read from the store, unless a save has cached newer
+     * content for the title in the meantime.
+     */
+    synchronized void putIfAbsent(String title, String content) {
+        if (!entries.containsKey(title)) {
+            put(title, content);
+        }
+    }
+
+    synchronized void put(String title, String content) {
+        invalidate(title);
+        long size = sizeOf(content);
+        if (size > maxBytes) return;
+        entries.put(title, content);
+        currentBytes += size;
+        Iterator<Map.Entry<String, String>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    synchronized void invalidate(String title) {
+        String previous = entries.remove(title);
+        if (previous != null) {
+            currentBytes -= sizeOf(previous);
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+    public synchronized int getEntryCount() { return entries.size(); }
+    public synchronized long getSizeBytes() { return currentBytes; }
+    public long getMaxBytes() { return maxBytes; }
+
+    private static long sizeOf(String content) {
+        return 2L * content.length();
+    }
+}
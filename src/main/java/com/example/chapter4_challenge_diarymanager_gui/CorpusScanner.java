@@ -0,0 +1,106 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Folds a computation over every item of a corpus on a work-stealing pool. The items
+ * are split in halves until a partition is small enough to scan on one thread; each
+ * partition folds into its own accumulator, so workers share nothing while they run,
+ * and the accumulators are merged pairwise on the way back up. Idle workers steal
+ * the larger, not yet split halves, which keeps every core busy even when entry sizes
+ * vary a lot.
+ * <p>
+ * This is for CPU-heavy passes over the whole diary, such as rebuilding the indexes;
+ * {@link BulkRunner} stays the right tool for bounded I/O-heavy work like import and
+ * export, and for anything that must keep item order.
+ */
+final class CorpusScanner {
+    // Override with -Ddiary.scan.threads
+    static final int DEFAULT_PARALLELISM =
+            Integer.getInteger("diary.scan.threads", Runtime.getRuntime().availableProcessors());
+    // Enough partitions per worker for stealing to even out the load
+    private static final int PARTITIONS_PER_WORKER = 16;
+    private static final int MIN_PARTITION = 16;
+
+    /** Folds one item into its partition's accumulator. */
+    @FunctionalInterface
+    interface Folder<T, A> {
+        void fold(A accumulator, T item) throws IOException;
+    }
+
+    private CorpusScanner() {
+    }
+
+    /**
+     * Scans every item and returns the merged accumulator. Progress is reported after each
+     * partition. Once the listener reports cancellation no further items are started, and
+     * this throws {@link CancellationException}; the first {@link IOException} from the
+     * folder aborts the scan the same way and is rethrown.
+     */
+    static <T, A> A scan(List<T> items, int parallelism, Supplier<A> newAccumulator, Folder<T, A> folder,
+                         BinaryOperator<A> merge, FileManager.BulkListener listener) throws IOException {
+        int total = items.size();
+        int threads = Math.max(1, parallelism);
+        int partition = Math.max(MIN_PARTITION, total / (threads * PARTITIONS_PER_WORKER));
+        listener.progress(0, total);
+        Scan<T, A> scan = new Scan<>(items, newAccumulator, folder, merge, listener, new AtomicInteger(), partition);
+
+        // Small scans, e.g. the few entries a reconcile finds changed, are not worth a pool
+        if (threads == 1 || total <= partition) return unwrap(() -> scan.fold(0, total));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return unwrap(() -> pool.invoke(scan.range(0, total)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static <A> A unwrap(Supplier<A> run) throws IOException {
+        try {
+            return run.get();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record Scan<T, A>(List<T> items, Supplier<A> newAccumulator, Folder<T, A> folder,
+                              BinaryOperator<A> merge, FileManager.BulkListener listener,
+                              AtomicInteger done, int partition) {
+
+        RecursiveTask<A> range(int from, int to) {
+            return new RecursiveTask<>() {
+                @Override
+                protected A compute() {
+                    if (to - from <= partition) return fold(from, to);
+                    int middle = (from + to) >>> 1;
+                    RecursiveTask<A> left = range(from, middle);
+                    left.fork();
+                    A right = range(middle, to).invoke();
+                    return merge.apply(left.join(), right);
+                }
+            };
+        }
+
+        A fold(int from, int to) {
+            A accumulator = newAccumulator.get();
+            for (int i = from; i < to; i++) {
+                if (listener.isCancelled()) throw new CancellationException();
+                try {
+                    folder.fold(accumulator, items.get(i));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            listener.progress(done.addAndGet(to - from), items.size());
+            return accumulator;
+        }
+    }
+}
@@ -1,24 +1,39 @@
 package com.example.chapter4_challenge_diarymanager_gui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
 import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.web.HTMLEditor;
+import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import javafx.util.Callback;
 import javafx.util.Duration;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class DashboardController {
     @FXML private BorderPane mainContainer;
@@ -34,10 +49,20 @@ public class DashboardController {
     @FXML private VBox welcomePane;
     @FXML private BorderPane editorPane;
     @FXML private TextField titleField;
-    @FXML private HTMLEditor contentEditor;
+    @FXML private StackPane editorHost;
+    // Created the first time an entry is opened, see ensureEditor()
+    private HTMLEditor contentEditor;
+    private WebEngine editorEngine;
+    // Mirrors the editor's document so autosaves only send what changed
+    private final EditTracker editTracker = new EditTracker();
     @FXML private ListView<EntryMetadata> entryList;
     @FXML private Label statusLabel;
 
+    // Progress of a running bulk delete, import, export or clear
+    @FXML private VBox bulkProgressBox;
+    @FXML private Label bulkProgressLabel;
+    @FXML private ProgressBar bulkProgressBar;
+
     // Search field in the sub-sidebar
     @FXML private TextField searchField;
 
@@ -70,15 +95,54 @@ public class DashboardController {
     // Statistics Components
     @FXML private Label totalEntriesLabel;
     @FXML private Label wordsPerEntryLabel;
-
-    private final FileManager fileManager = new FileManager();
+    @FXML private Label totalWordsLabel;
+    @FXML private Label longestEntryLabel;
+    @FXML private Label streakLabel;
+    @FXML private TableView<Metrics.TimerSnapshot> performanceTable;
+    @FXML private Label performanceSummaryLabel;
+
+    // Opened from the metadata snapshot; the store itself is opened by the reconcile that
+    // runs after the first paint
+    private final FileManager fileManager = FileManager.openFromSnapshot();
+    private final Metrics metrics = fileManager.getMetrics();
+    // Every FileManager call from here runs on the scheduler's virtual threads
+    private final IoScheduler io = new IoScheduler(metrics);
+    // Work for the entry in the editor, cancelled when the user moves on
+    private final IoScheduler.Scope editorScope = io.openScope();
+    private final SearchService searchService = new SearchService(fileManager::search,
+            io.executor(IoScheduler.Resource.INDEX), Platform::runLater, 150);
+    private final SaveQueue saveQueue = new SaveQueue(fileManager,
+            io.serial(IoScheduler.Resource.STORAGE), Platform::runLater);
+    // Bulk tasks run on the export lane and their entries on the storage lane, so a bulk
+    // task never waits for a permit of its own lane
+    private final BulkOperations bulkOperations =
+            new BulkOperations(fileManager, io.executor(IoScheduler.Resource.STORAGE));
+    private final Metrics.Timer calendarTimer = metrics.timer("calendar", "Calendar month rebuilds.");
+    private final Metrics.Timer statisticsTimer = metrics.timer("statistics", "Statistics view refreshes.");
+    private final Metrics.Timer editorSyncTimer = metrics.timer("editor_sync", "Collecting the editor's changes for an autosave.");
+    private final Metrics.Counter errors = metrics.counter("errors", "Errors that were logged rather than thrown.");
+    // Refreshes the performance panel while the statistics view is showing
+    private final Timeline performanceRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> updatePerformance()));
+    // Writes the metrics to -Ddiary.metrics.file, if set, for a local scraper
+    private Timeline metricsExport;
+    // Started on the scheduler, closed on shutdown
+    private volatile Closeable entryWatcher;
+    private Task<?> bulkTask;
     private final PauseTransition autoSaveTimer = new PauseTransition(Duration.seconds(2));
     private boolean isAutoSaveEnabled = true;
+    private boolean isLoadingEntry;
+    // Set while the list is rebuilt in code, so re-selecting an item does not reload it
+    private boolean isRefreshingList;
+    // Bumped on every selection so a slow read that finishes late is ignored
+    private long loadGeneration;
+    // Title of the stored entry in the editor, so editing the title renames that entry
+    private String editingTitle;
     private YearMonth currentYearMonth;
 
     @FXML
     public void initialize() {
         setupEntryListCellFactory();
+        entryList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         loadEntryList();
         currentYearMonth = YearMonth.now();
         populateCalendar(currentYearMonth);
@@ -86,17 +150,20 @@ public class DashboardController {
         // Initialize Settings
         fontSizeComboBox.setItems(FXCollections.observableArrayList(10, 12, 14, 16, 18));
         fontSizeComboBox.setValue(12);
-        fontSizeComboBox.setOnAction(e -> contentEditor.setStyle("-fx-font-size: " + fontSizeComboBox.getValue() + "px;"));
+        fontSizeComboBox.setOnAction(e -> applyFontSize());
+
+        setupPerformancePanel();
 
         // Default view
         showWritingView();
 
         // Search functionality
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> filterEntries(newVal));
+        searchField.textProperty().addListener((obs, oldVal, newVal) ->
+                searchService.submit(newVal, results -> entryList.getItems().setAll(results)));
 
         // Entry Selection
         entryList.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null) {
+            if (newVal != null && !isRefreshingList) {
                 showEditor();
                 isAutoSaveEnabled = false;
                 loadEntryContent(newVal.getTitle());
@@ -115,13 +182,64 @@ public class DashboardController {
             }
         });
 
-        // Custom Format Actions
-        setupCustomFormatActions();
+        // Pick up entries changed on disk by other programs, then catch up with changes
+        // made while the app was closed, off the FX thread
+        io.executor(IoScheduler.Resource.STORAGE).execute(() -> {
+            try {
+                entryWatcher = fileManager.startWatching(titles -> Platform.runLater(this::handleExternalChange));
+            } catch (IOException e) { reportError(e); }
+            try {
+                fileManager.reconcile();
+            } catch (IOException e) { reportError(e); }
+            Platform.runLater(() -> {
+                handleExternalChange();
+                StartupTimer.reconciled();
+            });
+        });
+    }
+
+    // Building the HTMLEditor starts WebKit, which is the slowest part of startup,
+    // so it waits until an entry is actually opened
+    private HTMLEditor ensureEditor() {
+        if (contentEditor == null) {
+            contentEditor = new HTMLEditor();
+            editorHost.getChildren().add(contentEditor);
+            applyFontSize();
+            // Creates the skin now, so the WebView inside can be looked up
+            contentEditor.applyCss();
+            setupCustomFormatActions();
+            // Saving only the changed blocks is cheap enough to autosave while typing
+            contentEditor.addEventHandler(KeyEvent.KEY_RELEASED, e -> {
+                if (isAutoSaveEnabled && !isLoadingEntry && !titleField.getText().isEmpty()) {
+                    statusLabel.setText("Unsaved changes...");
+                    autoSaveTimer.playFromStart();
+                }
+            });
+            StartupTimer.mark("editor");
+        }
+        return contentEditor;
+    }
+
+    private void applyFontSize() {
+        if (contentEditor != null) {
+            contentEditor.setStyle("-fx-font-size: " + fontSizeComboBox.getValue() + "px;");
+        }
+    }
+
+    private void handleExternalChange() {
+        String query = searchField.getText();
+        if (query == null || query.isBlank()) {
+            loadEntryList();
+        } else {
+            searchService.submit(query, results -> entryList.getItems().setAll(results));
+        }
+        populateCalendar(currentYearMonth);
     }
 
     private void setupCustomFormatActions() {
-        WebView webView = (WebView) contentEditor.lookup(".web-view");
+        WebView webView = (WebView) ensureEditor().lookup(".web-view");
         if (webView != null) {
+            editorEngine = webView.getEngine();
             // Formatting buttons
             boldButton.setOnAction(e -> webView.getEngine().executeScript("document.execCommand('bold', false, null)"));
             italicButton.setOnAction(e -> webView.getEngine().executeScript("document.execCommand('italic', false, null)"));
@@ -148,8 +266,102 @@ public class DashboardController {
     // --- Icon Toolbar Handler Methods ---
     @FXML
     public void handleFileWord() {
-        statusLabel.setText("Export to Word feature");
-        showAlert("Export", "This would export the current entry to Word format.", Alert.AlertType.INFORMATION);
+        // The selected entries, or the whole diary if nothing is selected
+        List<EntryMetadata> entries = List.copyOf(entryList.getSelectionModel().getSelectedItems());
+        if (entries.isEmpty()) entries = fileManager.listEntriesMetadata();
+        if (entries.isEmpty()) {
+            showAlert("Export", "There are no entries to export.", Alert.AlertType.INFORMATION);
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Entries");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Word Document (*.doc)", "*.doc"),
+                new FileChooser.ExtensionFilter("Zip Archive of HTML Files (*.zip)", "*.zip"));
+        chooser.setInitialFileName(entries.size() == 1 ? entries.get(0).getTitle() + ".doc" : "Diary.doc");
+        File target = chooser.showSaveDialog(mainContainer.getScene().getWindow());
+        if (target == null) return;
+        runBulk(bulkOperations.exportEntries(entries, target.toPath()), IoScheduler.Resource.EXPORT, result -> { });
+    }
+
+    @FXML
+    public void handleImportFiles() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Entries");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                "HTML, Markdown or Zip (*.html, *.htm, *.md, *.markdown, *.zip)",
+                "*.html", "*.htm", "*.md", "*.markdown", "*.zip"));
+        List<File> files = chooser.showOpenMultipleDialog(mainContainer.getScene().getWindow());
+        if (files == null || files.isEmpty()) return;
+        runBulk(bulkOperations.importEntries(files.stream().map(File::toPath).toList()),
+                IoScheduler.Resource.EXPORT, result -> { });
+    }
+
+    @FXML
+    public void handleImportFolder() {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Import Entries from Folder");
+        File folder = chooser.showDialog(mainContainer.getScene().getWindow());
+        if (folder == null) return;
+        runBulk(bulkOperations.importEntries(List.of(folder.toPath())), IoScheduler.Resource.EXPORT, result -> { });
+    }
+
+    @FXML
+    public void handleCancelBulk() {
+        if (bulkTask != null) bulkTask.cancel(false);
+    }
+
+    // Runs one bulk task at a time, showing its progress under the entry list. The list,
+    // calendar and statistics are refreshed whatever the outcome.
+    private <T> void runBulk(Task<T> task, IoScheduler.Resource resource, Consumer<T> onSucceeded) {
+        if (bulkTask != null) {
+            showAlert("Busy", "Please wait for the current operation to finish.", Alert.AlertType.INFORMATION);
+            return;
+        }
+        bulkTask = task;
+        bulkProgressLabel.textProperty().bind(task.messageProperty());
+        bulkProgressBar.progressProperty().bind(task.progressProperty());
+        bulkProgressBox.setManaged(true);
+        bulkProgressBox.setVisible(true);
+
+        task.setOnSucceeded(e -> {
+            finishBulk(task.getMessage());
+            if (task.getValue() instanceof BulkResult result && !result.getFailures().isEmpty()) {
+                showFailures(result);
+            }
+            onSucceeded.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            reportError(task.getException());
+            finishBulk("Operation failed");
+            showAlert("Error", String.valueOf(task.getException().getMessage()), Alert.AlertType.ERROR);
+        });
+        task.setOnCancelled(e -> finishBulk("Cancelled"));
+        io.executor(resource).execute(task);
+    }
+
+    private void finishBulk(String status) {
+        bulkProgressLabel.textProperty().unbind();
+        bulkProgressBar.progressProperty().unbind();
+        bulkProgressBox.setVisible(false);
+        bulkProgressBox.setManaged(false);
+        bulkTask = null;
+        statusLabel.setText(status);
+        handleExternalChange();
+        if (statisticsView.isVisible()) updateStatistics();
+    }
+
+    private void showFailures(BulkResult result) {
+        StringBuilder message = new StringBuilder(result.getFailures().size() + " could not be processed:\n");
+        int shown = 0;
+        for (Map.Entry<String, Exception> failure : result.getFailures().entrySet()) {
+            if (shown++ == 10) {
+                message.append("\n...");
+                break;
+            }
+            message.append("\n• ").append(failure.getKey()).append(": ").append(failure.getValue().getMessage());
+        }
+        showAlert("Some entries failed", message.toString(), Alert.AlertType.WARNING);
     }
 
     @FXML
@@ -166,7 +378,7 @@ public class DashboardController {
 
     @FXML
     public void handleImage() {
-        WebView webView = (WebView) contentEditor.lookup(".web-view");
+        WebView webView = (WebView) ensureEditor().lookup(".web-view");
         if (webView != null) {
             TextInputDialog dialog = new TextInputDialog("https://picsum.photos/400/300");
             dialog.setTitle("Insert Image");
@@ -184,7 +396,7 @@ public class DashboardController {
 
     @FXML
     public void handleLink() {
-        WebView webView = (WebView) contentEditor.lookup(".web-view");
+        WebView webView = (WebView) ensureEditor().lookup(".web-view");
         if (webView != null) {
             TextInputDialog dialog = new TextInputDialog("https://example.com");
             dialog.setTitle("Insert Link");
@@ -201,7 +413,7 @@ public class DashboardController {
 
     @FXML
     public void handleTable() {
-        WebView webView = (WebView) contentEditor.lookup(".web-view");
+        WebView webView = (WebView) ensureEditor().lookup(".web-view");
         if (webView != null) {
             TextInputDialog rowsDialog = new TextInputDialog("3");
             rowsDialog.setTitle("Insert Table");
@@ -233,7 +445,7 @@ public class DashboardController {
 
     @FXML
     public void handleSymbol() {
-        WebView webView = (WebView) contentEditor.lookup(".web-view");
+        WebView webView = (WebView) ensureEditor().lookup(".web-view");
         if (webView != null) {
             TextInputDialog dialog = new TextInputDialog("★ ☆ ♥ ♦ ♣ ♠");
             dialog.setTitle("Insert Symbol");
@@ -267,29 +479,15 @@ public class DashboardController {
     // Only add the new handler methods above and keep everything else
 
     private void setupEntryListCellFactory() {
-        entryList.setCellFactory(param -> new ListCell<EntryMetadata>() {
-            @Override
-            protected void updateItem(EntryMetadata item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                    setGraphic(null);
-                } else {
-                    String dateStr = item.getLastModified().format(DateTimeFormatter.ofPattern("dd MMM"));
-                    VBox vBox = new VBox(0);
-                    Label titleLabel = new Label(item.getTitle());
-                    titleLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: inherit; -fx-font-size: 12px;");
-                    Label dateLabel = new Label(dateStr);
-                    dateLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: inherit; -fx-opacity: 0.7;");
-                    vBox.getChildren().addAll(titleLabel, dateLabel);
-                    setGraphic(vBox);
-                }
-            }
-        });
+        entryList.setCellFactory(param -> new EntryListCell());
+        // Every cell is the same height, so the list can skip measuring them while scrolling
+        entryList.setFixedCellSize(52);
     }
 
     // --- Navigation ---
+    // Each view closes the editor, so switching views drops the open entry's pending reads
     @FXML public void showWritingView() {
+        editorScope.cancelAll();
         writingView.setVisible(true);
         calendarView.setVisible(false);
         settingsView.setVisible(false);
@@ -299,6 +497,7 @@ public class DashboardController {
     }
 
     @FXML public void showCalendarView() {
+        editorScope.cancelAll();
         writingView.setVisible(false);
         calendarView.setVisible(true);
         settingsView.setVisible(false);
@@ -307,6 +506,7 @@ public class DashboardController {
     }
 
     @FXML public void showSettingsView() {
+        editorScope.cancelAll();
         writingView.setVisible(false);
         calendarView.setVisible(false);
         settingsView.setVisible(true);
@@ -314,6 +514,7 @@ public class DashboardController {
     }
 
     @FXML public void showStatisticsView() {
+        editorScope.cancelAll();
         writingView.setVisible(false);
         calendarView.setVisible(false);
         settingsView.setVisible(false);
@@ -336,7 +537,7 @@ public class DashboardController {
         showWritingView();
         handleNewEntry();
         titleField.setText("Morning Reflection - " + LocalDate.now().format(DateTimeFormatter.ofPattern("dd MMM yyyy")));
-        contentEditor.setHtmlText("<h3>Morning Reflection</h3><p><b>1. How am I feeling today?</b></p><p>...</p><p><b>2. What is my main goal?</b></p><p>...</p>");
+        ensureEditor().setHtmlText("<h3>Morning Reflection</h3><p><b>1. How am I feeling today?</b></p><p>...</p><p><b>2. What is my main goal?</b></p><p>...</p>");
     }
 
     @FXML public void handlePlus() {
@@ -345,7 +546,11 @@ public class DashboardController {
     }
 
     @FXML public void handleBack() {
+        // Reads still queued for the entry being closed are no longer wanted
+        editorScope.cancelAll();
         entryList.getSelectionModel().clearSelection();
+        // Undo a calendar day filter
+        if (searchField.getText() == null || searchField.getText().isBlank()) loadEntryList();
         welcomePane.setVisible(true);
         editorPane.setVisible(false);
     }
@@ -356,6 +561,7 @@ public class DashboardController {
     }
 
     private void showEditor() {
+        ensureEditor();
         welcomePane.setVisible(false);
         editorPane.setVisible(true);
     }
@@ -372,127 +578,366 @@ public class DashboardController {
     }
 
     private void populateCalendar(YearMonth yearMonth) {
+        calendarTimer.time(() -> buildCalendar(yearMonth));
+    }
+
+    private void buildCalendar(YearMonth yearMonth) {
         calendarMonthLabel.setText(yearMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy")));
         calendarGrid.getChildren().clear();
 
-        try {
-            Set<LocalDate> entryDates = fileManager.listEntriesMetadata().stream()
-                    .map(e -> e.getLastModified().toLocalDate())
-                    .collect(Collectors.toSet());
-
-            String[] days = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
-            for (int i = 0; i < 7; i++) {
-                Label header = new Label(days[i]);
-                header.getStyleClass().add("calendar-day-header");
-                calendarGrid.add(header, i, 0);
-            }
+        int[] entryCounts = fileManager.getCalendar().getEntryCounts(yearMonth);
 
-            LocalDate firstOfMonth = yearMonth.atDay(1);
-            int dayOfWeek = firstOfMonth.getDayOfWeek().getValue();
-            int daysInMonth = yearMonth.lengthOfMonth();
-            int row = 1;
-            int col = dayOfWeek - 1;
-
-            for (int day = 1; day <= daysInMonth; day++) {
-                LocalDate date = yearMonth.atDay(day);
-                Label dayLabel = new Label(String.valueOf(day));
-                dayLabel.getStyleClass().add("calendar-day");
-                if (date.equals(LocalDate.now())) dayLabel.getStyleClass().add("today");
-                if (entryDates.contains(date)) dayLabel.getStyleClass().add("has-entry");
-
-                dayLabel.setOnMouseClicked(e -> {
-                    for (EntryMetadata entry : entryList.getItems()) {
-                        if (entry.getLastModified().toLocalDate().equals(date)) {
-                            showWritingView();
-                            entryList.getSelectionModel().select(entry);
-                            break;
-                        }
-                    }
-                });
+        String[] days = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+        for (int i = 0; i < 7; i++) {
+            Label header = new Label(days[i]);
+            header.getStyleClass().add("calendar-day-header");
+            calendarGrid.add(header, i, 0);
+        }
 
-                dayLabel.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
-                calendarGrid.add(dayLabel, col, row);
-                col = (col + 1) % 7;
-                if (col == 0) row++;
+        LocalDate firstOfMonth = yearMonth.atDay(1);
+        int dayOfWeek = firstOfMonth.getDayOfWeek().getValue();
+        int daysInMonth = yearMonth.lengthOfMonth();
+        int row = 1;
+        int col = dayOfWeek - 1;
+
+        for (int day = 1; day <= daysInMonth; day++) {
+            LocalDate date = yearMonth.atDay(day);
+            Label dayLabel = new Label(String.valueOf(day));
+            dayLabel.getStyleClass().add("calendar-day");
+            if (date.equals(LocalDate.now())) dayLabel.getStyleClass().add("today");
+            if (entryCounts[day] > 0) {
+                dayLabel.getStyleClass().add("has-entry");
+                if (entryCounts[day] > 1) dayLabel.setText(day + " (" + entryCounts[day] + ")");
+                dayLabel.setOnMouseClicked(e -> openDay(date));
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+
+            dayLabel.setMaxSize(Double.MAX_VALUE, Double.MAX_VALUE);
+            calendarGrid.add(dayLabel, col, row);
+            col = (col + 1) % 7;
+            if (col == 0) row++;
         }
     }
 
+    // Shows the day's entries in the list and opens the newest one
+    private void openDay(LocalDate date) {
+        List<EntryMetadata> entries = fileManager.getCalendar().getEntriesOn(date);
+        if (entries.isEmpty()) return;
+        showWritingView();
+        entryList.getItems().setAll(entries);
+        if (entries.size() > 1) {
+            statusLabel.setText(entries.size() + " entries on " + date.format(DateTimeFormatter.ofPattern("dd MMM yyyy")));
+        }
+        entryList.getSelectionModel().select(entries.get(0));
+    }
+
     // --- Statistics Logic ---
     private void updateStatistics() {
-        try {
-            List<EntryMetadata> entries = fileManager.listEntriesMetadata();
-            totalEntriesLabel.setText(String.valueOf(entries.size()));
+        statisticsTimer.time(this::refreshStatistics);
+    }
 
-            long totalWords = 0;
-            for (EntryMetadata entry : entries) {
-                String content = fileManager.readEntry(entry.getTitle());
-                totalWords += content.replaceAll("<[^>]*>", "").trim().split("\\s+").length;
-            }
+    private void refreshStatistics() {
+        StatsAggregator stats = fileManager.getStatistics();
+        totalEntriesLabel.setText(String.valueOf(stats.getEntryCount()));
+        wordsPerEntryLabel.setText(String.format("%.1f", stats.getAverageWords()));
+        totalWordsLabel.setText(String.valueOf(stats.getTotalWords()));
+        EntryStats longest = stats.getLongestEntry();
+        longestEntryLabel.setText(longest == null ? "-" : longest.getTitle() + " (" + longest.getWordCount() + " words)");
+        streakLabel.setText(stats.getCurrentStreak(LocalDate.now()) + " days");
+    }
 
-            double wordsPerEntry = (entries.isEmpty()) ? 0 : (double) totalWords / entries.size();
-            wordsPerEntryLabel.setText(String.format("%.1f", wordsPerEntry));
+    // --- Performance Panel ---
+    private void setupPerformancePanel() {
+        performanceTable.getColumns().setAll(List.of(
+                performanceColumn("Operation", Metrics.TimerSnapshot::name),
+                performanceColumn("Calls", snapshot -> String.valueOf(snapshot.count())),
+                performanceColumn("Errors", snapshot -> String.valueOf(snapshot.errors())),
+                performanceColumn("Mean ms", snapshot -> millis(snapshot.meanMillis())),
+                performanceColumn("p50 ms", snapshot -> millis(snapshot.p50Millis())),
+                performanceColumn("p95 ms", snapshot -> millis(snapshot.p95Millis())),
+                performanceColumn("p99 ms", snapshot -> millis(snapshot.p99Millis())),
+                performanceColumn("Max ms", snapshot -> millis(snapshot.maxMillis()))));
+        performanceTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        performanceRefresh.setCycleCount(Animation.INDEFINITE);
+        statisticsView.visibleProperty().addListener((obs, wasVisible, visible) -> {
+            if (visible) {
+                updatePerformance();
+                performanceRefresh.play();
+            } else {
+                performanceRefresh.stop();
+            }
+        });
 
-        } catch (IOException e) {
-            e.printStackTrace();
+        String metricsFile = System.getProperty("diary.metrics.file");
+        if (metricsFile != null) {
+            Path target = Paths.get(metricsFile);
+            metricsExport = new Timeline(new KeyFrame(Duration.seconds(15),
+                    e -> io.executor(IoScheduler.Resource.EXPORT).execute(() -> exportMetrics(target))));
+            metricsExport.setCycleCount(Animation.INDEFINITE);
+            metricsExport.play();
         }
     }
 
+    private static TableColumn<Metrics.TimerSnapshot, String> performanceColumn(
+            String title, Function<Metrics.TimerSnapshot, String> value) {
+        TableColumn<Metrics.TimerSnapshot, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new SimpleStringProperty(value.apply(cell.getValue())));
+        column.setSortable(false);
+        return column;
+    }
+
+    private static String millis(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private void updatePerformance() {
+        performanceTable.getItems().setAll(metrics.timerSnapshots());
+        ContentCache cache = fileManager.getContentCache();
+        long reads = cache.getHitCount() + cache.getMissCount();
+        performanceSummaryLabel.setText(String.format(Locale.ROOT,
+                "Cache: %d entries, %.1f MB, %.0f%% hits  ·  Search p95: %.1f ms, %d superseded  ·  "
+                        + "I/O threads: %d (peak %d)  ·  Errors: %d",
+                cache.getEntryCount(), cache.getSizeBytes() / 1e6,
+                reads == 0 ? 0 : 100.0 * cache.getHitCount() / reads,
+                searchService.getLatencyPercentile(95), searchService.getCancelledCount(),
+                io.getLiveThreads(), io.getPeakThreads(), errors.get()));
+    }
+
+    @FXML public void handleExportMetrics() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Metrics");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Prometheus Text Format (*.prom)", "*.prom"));
+        chooser.setInitialFileName("diary.prom");
+        File target = chooser.showSaveDialog(mainContainer.getScene().getWindow());
+        if (target == null) return;
+        io.executor(IoScheduler.Resource.EXPORT).execute(() -> {
+            exportMetrics(target.toPath());
+            Platform.runLater(() -> statusLabel.setText("Metrics exported to " + target.getName()));
+        });
+    }
+
+    private void exportMetrics(Path target) {
+        try {
+            metrics.export(target);
+        } catch (IOException e) { reportError(e); }
+    }
+
+    // Errors that are only logged are counted, so they show up on the performance panel
+    private void reportError(Throwable error) {
+        error.printStackTrace();
+        errors.increment();
+    }
+
     // --- File Operations ---
     private void performAutoSave() {
+        performAutoSave(false);
+    }
+
+    // Sends only the edits since the last save when it can. The whole document goes when
+    // the title changed, the tracker lost track of the page, the edit log is due to be
+    // consolidated, or consolidate is set, e.g. when leaving the entry.
+    private void performAutoSave(boolean consolidate) {
         String title = titleField.getText();
-        if (title == null || title.trim().isEmpty()) return;
+        if (title == null || title.trim().isEmpty() || isLoadingEntry || contentEditor == null) return;
         statusLabel.setText("Auto-saving...");
-        Task<Void> saveTask = new Task<>() {
-            @Override protected Void call() throws Exception {
-                fileManager.saveEntry(new DiaryEntry(title, contentEditor.getHtmlText()));
-                return null;
-            }
+        String renameFrom = editingTitle != null && !editingTitle.equals(title) ? editingTitle : null;
+        editingTitle = title;
+        Consumer<EntryMetadata> onSaved = metadata -> {
+            if (title.equals(titleField.getText())) statusLabel.setText("Saved");
+            updateListItem(metadata, renameFrom);
         };
-        saveTask.setOnSucceeded(e -> {
-            statusLabel.setText("Saved");
-            loadEntryList();
-        });
-        new Thread(saveTask).start();
+        Consumer<IOException> onFailed = error -> {
+            reportError(error);
+            editTracker.requireFullSave();
+            statusLabel.setText("Save failed: " + title);
+        };
+
+        int lengthBefore = editTracker.length();
+        boolean appendable = renameFrom == null && !consolidate && editTracker.canAppendEdits(title);
+        List<TextEdit> edits = syncEditor();
+        if (edits != null && appendable) {
+            if (edits.isEmpty()) {
+                statusLabel.setText("Saved");
+            } else {
+                saveQueue.submitEdits(title, lengthBefore, edits, onSaved, error -> {
+                    onFailed.accept(error);
+                    // Usually the entry changed on disk. The tracker still holds the whole
+                    // text, so save that; once another entry is open, leaving this one
+                    // already queued its full save.
+                    if (title.equals(editingTitle) && editTracker.isTracking()) performAutoSave(true);
+                });
+            }
+            return;
+        }
+        String content;
+        if (editTracker.isTracking()) {
+            content = editTracker.text();
+            editTracker.savedInFull(title);
+        } else {
+            content = contentEditor.getHtmlText();
+        }
+        saveQueue.submit(new DiaryEntry(title, content), renameFrom, onSaved, onFailed);
+    }
+
+    // Brings the tracker up to date with the page; null if it took a snapshot or could
+    // not read the page, so the document has to be saved in full
+    private List<TextEdit> syncEditor() {
+        if (editorEngine == null) return null;
+        long start = System.nanoTime();
+        try {
+            return editTracker.apply(String.valueOf(editorEngine.executeScript(editTracker.script())));
+        } catch (RuntimeException e) {
+            editorSyncTimer.recordError();
+            reportError(e);
+            return null;
+        } finally {
+            editorSyncTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    // Moves a freshly saved entry to the top of the list (newest first) without re-listing
+    private void updateListItem(EntryMetadata metadata, String renamedFrom) {
+        List<EntryMetadata> items = entryList.getItems();
+        EntryMetadata selected = entryList.getSelectionModel().getSelectedItem();
+        boolean wasSelected = selected != null && (selected.getTitle().equals(metadata.getTitle())
+                || selected.getTitle().equals(renamedFrom));
+        isRefreshingList = true;
+        try {
+            items.removeIf(item -> item.getTitle().equals(metadata.getTitle()) || item.getTitle().equals(renamedFrom));
+            items.add(0, metadata);
+            if (wasSelected) entryList.getSelectionModel().select(0);
+        } finally {
+            isRefreshingList = false;
+        }
     }
 
     @FXML public void handleSave() { performAutoSave(); }
 
     @FXML public void handleDelete() {
+        List<String> selectedTitles = entryList.getSelectionModel().getSelectedItems().stream()
+                .map(EntryMetadata::getTitle)
+                .toList();
+        if (selectedTitles.size() > 1) {
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                    "Delete " + selectedTitles.size() + " entries?", ButtonType.OK, ButtonType.CANCEL);
+            if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+            // Autosaves still queued for these entries would bring them back
+            selectedTitles.forEach(saveQueue::forget);
+            stopEditingIfAny(selectedTitles);
+            runBulk(bulkOperations.deleteEntries(selectedTitles), IoScheduler.Resource.EXPORT, result -> {
+                handleNewEntry();
+                handleBack();
+            });
+            return;
+        }
         EntryMetadata selected = entryList.getSelectionModel().getSelectedItem();
         String titleToDelete = (selected != null) ? selected.getTitle() : titleField.getText();
         if (titleToDelete == null || titleToDelete.isEmpty()) return;
-        try {
-            fileManager.deleteEntry(titleToDelete);
+        stopEditingIfAny(List.of(titleToDelete));
+        // On the save writer, behind any save of the entry already under way
+        saveQueue.delete(titleToDelete, () -> {
             loadEntryList();
             handleNewEntry();
             handleBack();
-        } catch (IOException e) { e.printStackTrace(); }
+        }, error -> {
+            reportError(error);
+            statusLabel.setText("Could not delete: " + titleToDelete);
+        });
+    }
+
+    // Keeps the editor from autosaving an entry that is about to be deleted
+    private void stopEditingIfAny(List<String> titles) {
+        if (editingTitle != null && titles.contains(editingTitle)) {
+            autoSaveTimer.stop();
+            editTracker.reset();
+        }
+    }
+
+    /** Lists the saved versions of the open entry and puts the chosen one back in the editor. */
+    @FXML public void handleHistory() {
+        String title = editingTitle;
+        if (title == null || contentEditor == null || isLoadingEntry) {
+            showAlert("History", "Open an entry to see its earlier versions.", Alert.AlertType.INFORMATION);
+            return;
+        }
+        if (autoSaveTimer.getStatus() == Animation.Status.RUNNING) {
+            autoSaveTimer.stop();
+            performAutoSave();
+        }
+        Task<List<Revision>> listTask = new Task<>() {
+            @Override protected List<Revision> call() throws Exception {
+                return fileManager.listRevisions(title);
+            }
+        };
+        listTask.setOnSucceeded(e -> {
+            List<Revision> revisions = listTask.getValue();
+            if (revisions.size() < 2 || !title.equals(editingTitle)) {
+                showAlert("History", "There are no earlier versions of this entry.", Alert.AlertType.INFORMATION);
+                return;
+            }
+            ChoiceDialog<Revision> dialog = new ChoiceDialog<>(revisions.get(1), revisions);
+            dialog.setTitle("History");
+            dialog.setHeaderText("Restore an earlier version of \"" + title + "\"");
+            dialog.setContentText("Version:");
+            dialog.showAndWait().ifPresent(revision -> restoreRevision(title, revision));
+        });
+        listTask.setOnFailed(e -> reportError(listTask.getException()));
+        editorScope.executor(IoScheduler.Resource.STORAGE).execute(listTask);
+    }
+
+    // Loads the old version into the editor and saves it through the save queue, so it
+    // lands after any edits still waiting to be written
+    private void restoreRevision(String title, Revision revision) {
+        Task<String> readTask = new Task<>() {
+            @Override protected String call() throws Exception {
+                return fileManager.readRevision(title, revision.getNumber());
+            }
+        };
+        readTask.setOnSucceeded(e -> {
+            if (!title.equals(editingTitle)) return;
+            isAutoSaveEnabled = false;
+            contentEditor.setHtmlText(readTask.getValue());
+            isAutoSaveEnabled = true;
+            performAutoSave();
+            statusLabel.setText("Restored version " + revision.getNumber());
+        });
+        readTask.setOnFailed(e -> {
+            reportError(readTask.getException());
+            statusLabel.setText("Could not restore version " + revision.getNumber());
+        });
+        editorScope.executor(IoScheduler.Resource.STORAGE).execute(readTask);
     }
 
     @FXML public void handleNewEntry() {
+        editorScope.cancelAll();
+        loadGeneration++;
+        editingTitle = null;
+        if (isLoadingEntry) finishLoading("New Entry");
         isAutoSaveEnabled = false;
         titleField.clear();
-        contentEditor.setHtmlText("");
+        if (contentEditor != null) contentEditor.setHtmlText("");
         entryList.getSelectionModel().clearSelection();
         statusLabel.setText("New Entry");
         isAutoSaveEnabled = true;
     }
 
+    // Progress shows under the entry list, so this switches to the writing view
+    @FXML public void handleRebuildIndexes() {
+        showWritingView();
+        runBulk(bulkOperations.rebuildIndexes(), IoScheduler.Resource.INDEX, result -> { });
+    }
+
     @FXML public void handleClearHistory() {
-        try {
-            fileManager.clearAllEntries();
-            loadEntryList();
+        runBulk(bulkOperations.clearAllEntries(), IoScheduler.Resource.EXPORT, result -> {
+            saveQueue.forgetAll();
             handleBack();
-        } catch (IOException e) { e.printStackTrace(); }
+        });
     }
 
     private void loadEntryList() {
+        EntryMetadata current = entryList.getSelectionModel().getSelectedItem();
+        List<EntryMetadata> entries = fileManager.listEntriesMetadata();
+        isRefreshingList = true;
         try {
-            EntryMetadata current = entryList.getSelectionModel().getSelectedItem();
-            List<EntryMetadata> entries = fileManager.listEntriesMetadata();
             entryList.getItems().setAll(entries);
             if (current != null) {
                 for (EntryMetadata item : entryList.getItems()) {
@@ -502,23 +947,72 @@ public class DashboardController {
                     }
                 }
             }
-        } catch (IOException e) { e.printStackTrace(); }
+        } finally {
+            isRefreshingList = false;
+        }
     }
 
     private void loadEntryContent(String title) {
-        try {
-            titleField.setText(title);
-            contentEditor.setHtmlText(fileManager.readEntry(title));
-            statusLabel.setText("Loaded: " + title);
-        } catch (IOException e) { e.printStackTrace(); }
+        // Save pending edits to the previous entry before the editor changes under them,
+        // in full so its edit log is folded in
+        if (autoSaveTimer.getStatus() == Animation.Status.RUNNING || editTracker.hasUnsavedEdits()) {
+            autoSaveTimer.stop();
+            performAutoSave(true);
+        }
+        editorScope.cancelAll();
+        long ticket = ++loadGeneration;
+        isLoadingEntry = true;
+        editingTitle = title;
+        titleField.setText(title);
+        ensureEditor().setDisable(true);
+        statusLabel.setText("Loading: " + title + "...");
+
+        Task<String> loadTask = new Task<>() {
+            @Override protected String call() throws Exception {
+                return fileManager.readEntry(title);
+            }
+        };
+        loadTask.setOnSucceeded(e -> {
+            if (ticket != loadGeneration) return;
+            isAutoSaveEnabled = false;
+            contentEditor.setHtmlText(loadTask.getValue());
+            isAutoSaveEnabled = true;
+            saveQueue.markSaved(title, loadTask.getValue());
+            finishLoading("Loaded: " + title);
+        });
+        loadTask.setOnFailed(e -> {
+            reportError(loadTask.getException());
+            if (ticket != loadGeneration) return;
+            finishLoading("Could not load: " + title);
+        });
+        // Cancelled when the user leaves the entry before it has loaded
+        loadTask.setOnCancelled(e -> {
+            if (ticket == loadGeneration) handleNewEntry();
+        });
+        editorScope.executor(IoScheduler.Resource.STORAGE).execute(loadTask);
+        prefetchNeighbours();
     }
 
-    private void filterEntries(String query) {
-        try {
-            entryList.getItems().setAll(fileManager.listEntriesMetadata().stream()
-                    .filter(m -> m.getTitle().toLowerCase().contains(query.toLowerCase()))
-                    .toList());
-        } catch (IOException e) { e.printStackTrace(); }
+    private void finishLoading(String status) {
+        isLoadingEntry = false;
+        if (contentEditor != null) contentEditor.setDisable(false);
+        statusLabel.setText(status);
+    }
+
+    // Warm the content cache for the entries either side of the selection, so stepping
+    // through the list with the keyboard does not wait on the disk
+    private void prefetchNeighbours() {
+        int index = entryList.getSelectionModel().getSelectedIndex();
+        List<EntryMetadata> items = entryList.getItems();
+        for (int neighbour : new int[] {index - 1, index + 1}) {
+            if (index < 0 || neighbour < 0 || neighbour >= items.size()) continue;
+            String title = items.get(neighbour).getTitle();
+            editorScope.executor(IoScheduler.Resource.STORAGE).execute(() -> {
+                try {
+                    fileManager.prefetchEntry(title);
+                } catch (IOException e) { reportError(e); }
+            });
+        }
     }
 
     @FXML public void handleThemeToggle() {
@@ -532,6 +1026,29 @@ public class DashboardController {
         }
     }
 
+    /** Called by {@link MainApp} when the window closes. */
+    public void shutdown() {
+        if (autoSaveTimer.getStatus() == Animation.Status.RUNNING || editTracker.hasUnsavedEdits()) {
+            autoSaveTimer.stop();
+            performAutoSave(true);
+        }
+        searchService.shutdown();
+        performanceRefresh.stop();
+        if (metricsExport != null) {
+            metricsExport.stop();
+            exportMetrics(Paths.get(System.getProperty("diary.metrics.file")));
+        }
+        if (bulkTask != null) bulkTask.cancel(false);
+        editorScope.cancelAll();
+        saveQueue.shutdown();
+        // Lets a cancelled bulk operation finish the entries it has started
+        io.close();
+        try {
+            if (entryWatcher != null) entryWatcher.close();
+            fileManager.close();
+        } catch (IOException e) { reportError(e); }
+    }
+
     private void showAlert(String title, String msg, Alert.AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
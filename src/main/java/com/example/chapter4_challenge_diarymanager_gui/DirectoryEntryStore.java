@@ -0,0 +1,162 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The original layout: one {@code <title>.html} file per entry in a flat directory.
+ * With {@link EntryCodec#DEFLATE} the files hold compressed content under the same
+ * names; plain files written by other programs are still read as they are.
+ */
+public class DirectoryEntryStore implements EntryStore {
+    // Below this size a plain read is cheaper than setting up a mapping
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
+    private final Path storageDir;
+    private final EntryCodec codec;
+    private final Metrics.Counter errors;
+
+    public DirectoryEntryStore(Path storageDir) {
+        this(storageDir, EntryCodec.PLAIN);
+    }
+
+    public DirectoryEntryStore(Path storageDir, EntryCodec codec) {
+        this(storageDir, codec, new Metrics().counter("errors", "Errors that were logged rather than thrown."));
+    }
+
+    /** @param errors counts the files a listing had to skip */
+    DirectoryEntryStore(Path storageDir, EntryCodec codec, Metrics.Counter errors) {
+        this.storageDir = storageDir;
+        this.codec = codec;
+        this.errors = errors;
+    }
+
+    @Override
+    public EntryMetadata save(String title, String content) throws IOException {
+        Path filePath = pathOf(title);
+        // Write to a temp file and rename over the entry, so readers never see half a file
+        Path tempFile = storageDir.resolve("." + title + ".html.tmp");
+        Files.write(tempFile, codec.encode(content), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new EntryMetadata(title, readModifiedTime(filePath));
+    }
+
+    @Override
+    public EntryMetadata importEntry(String title, String content, LocalDateTime modified) throws IOException {
+        save(title, content);
+        Files.setLastModifiedTime(pathOf(title), FileTime.from(modified.atZone(ZoneId.systemDefault()).toInstant()));
+        return new EntryMetadata(title, modified);
+    }
+
+    @Override
+    public String read(String title) throws IOException {
+        return EntryCodec.decodeToString(Files.readAllBytes(pathOf(title)));
+    }
+
+    @Override
+    public ByteBuffer readBytes(String title) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathOf(title), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                return EntryCodec.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full
+            }
+            return EntryCodec.decode(buffer.flip().asReadOnlyBuffer());
+        }
+    }
+
+    @Override
+    public EntryMetadata rename(String oldTitle, String newTitle) throws IOException {
+        Path target = pathOf(newTitle);
+        // An atomic move would silently replace an existing entry
+        if (Files.exists(target)) throw new FileAlreadyExistsException(newTitle);
+        Files.move(pathOf(oldTitle), target, StandardCopyOption.ATOMIC_MOVE);
+        return new EntryMetadata(newTitle, readModifiedTime(target));
+    }
+
+    @Override
+    public boolean delete(String title) throws IOException {
+        return Files.deleteIfExists(pathOf(title));
+    }
+
+    @Override
+    public EntryMetadata stat(String title) throws IOException {
+        Path path = pathOf(title);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            return new EntryMetadata(title, LocalDateTime.ofInstant(attrs.lastModifiedTime().toInstant(), ZoneId.systemDefault()));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /** Files that are deleted while listing, or whose modification time cannot be read, are left out. */
+    @Override
+    public List<EntryMetadata> list() throws IOException {
+        List<EntryMetadata> entries = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(storageDir)) {
+            for (Path path : (Iterable<Path>) stream.filter(p -> p.toString().endsWith(".html"))::iterator) {
+                LocalDateTime modified = listedModifiedTime(path);
+                if (modified == null) continue;
+                String title = path.getFileName().toString().replace(".html", "");
+                entries.add(new EntryMetadata(title, modified));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void clear() throws IOException {
+        // Deletes as much as it can, then reports the first failure with the rest suppressed
+        IOException failure = null;
+        try (Stream<Path> stream = Files.list(storageDir)) {
+            for (Path path : (Iterable<Path>) stream.filter(p -> p.toString().endsWith(".html"))::iterator) {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    if (failure == null) failure = e;
+                    else failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    Path getStorageDir() {
+        return storageDir;
+    }
+
+    private Path pathOf(String title) {
+        return storageDir.resolve(title + ".html");
+    }
+
+    private static LocalDateTime readModifiedTime(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        return LocalDateTime.ofInstant(attrs.lastModifiedTime().toInstant(), ZoneId.systemDefault());
+    }
+
+    // Null if the file is gone or cannot be read; only the latter is an error
+    private LocalDateTime listedModifiedTime(Path path) {
+        try {
+            return readModifiedTime(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            errors.increment();
+            return null;
+        }
+    }
+}
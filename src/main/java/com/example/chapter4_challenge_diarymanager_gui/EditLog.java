@@ -0,0 +1,254 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Edits made to entries since they were last saved in full, one append-only file per
+ * entry id under {@code .edits/}. An autosave appends what was typed instead of writing
+ * out the whole entry; the next full save of the entry supersedes the log and deletes it.
+ * <p>
+ * File layout: a header {@code magic:int, baseStamp:long, baseLength:int} naming the
+ * saved content the edits apply to (its modification time and length in chars), then one
+ * record per edit: {@code offset:int, removed:int, insertedLength:int, inserted (UTF-8),
+ * crc32:int}. A torn record at the end of a file is cut off by the next append.
+ * <p>
+ * Callers hold the entry's lock, as for {@link RevisionStore}.
+ */
+class EditLog {
+    private static final int MAGIC = 0x45444C31; // "EDL1"
+    private static final int HEADER_SIZE = 4 + 8 + 4;
+    private static final int RECORD_HEADER_SIZE = 4 + 4 + 4;
+    private static final int TRAILER_SIZE = 4;
+    private static final String SUFFIX = ".log";
+
+    // An entry's log as last read or written
+    private static final class Log {
+        long baseStamp;
+        // Length of the text once every edit is applied
+        int length;
+        // End of the last intact record
+        long size;
+
+        Log(long baseStamp, int length, long size) {
+            this.baseStamp = baseStamp;
+            this.length = length;
+            this.size = size;
+        }
+    }
+
+    private record Contents(long baseStamp, int baseLength, List<TextEdit> edits, long size) {}
+
+    private final Path editsDir;
+    private final Map<Long, Log> logs = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    EditLog(Path editsDir) {
+        this.editsDir = editsDir;
+    }
+
+    boolean hasPending(long id) throws IOException {
+        load();
+        return logs.containsKey(id);
+    }
+
+    /** Ids of the entries that have a log. */
+    Set<Long> pendingIds() throws IOException {
+        load();
+        return Set.copyOf(logs.keySet());
+    }
+
+    int getPendingCount() {
+        return logs.size();
+    }
+
+    /** Modification time of the saved content the entry's edits apply to. */
+    long baseStamp(long id) {
+        return require(id).baseStamp;
+    }
+
+    /** Length of the entry's text with every logged edit applied. */
+    int length(long id) {
+        return require(id).length;
+    }
+
+    /** Starts a log for edits to the saved content with this stamp and length, replacing any old one. */
+    void begin(long id, long baseStamp, int baseLength) throws IOException {
+        load();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putLong(baseStamp).putInt(baseLength).flip();
+        Files.createDirectories(editsDir);
+        try (FileChannel channel = FileChannel.open(fileFor(id), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) channel.write(header);
+        }
+        logs.put(id, new Log(baseStamp, baseLength, HEADER_SIZE));
+    }
+
+    /** Appends edits to a log started with {@link #begin}. */
+    void append(long id, List<TextEdit> edits) throws IOException {
+        Log log = require(id);
+        List<byte[]> payloads = new ArrayList<>(edits.size());
+        int capacity = 0;
+        int length = log.length;
+        for (TextEdit edit : edits) {
+            if (edit.offset() + edit.removed() > length) {
+                throw new IllegalArgumentException("Edit at " + edit.offset() + " is past the end of the text");
+            }
+            length += edit.lengthChange();
+            byte[] payload = edit.inserted().getBytes(StandardCharsets.UTF_8);
+            payloads.add(payload);
+            capacity += RECORD_HEADER_SIZE + payload.length + TRAILER_SIZE;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        for (int i = 0; i < edits.size(); i++) {
+            TextEdit edit = edits.get(i);
+            byte[] payload = payloads.get(i);
+            int start = buffer.position();
+            buffer.putInt(edit.offset()).putInt(edit.removed()).putInt(payload.length).put(payload);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), start, buffer.position() - start);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(fileFor(id), StandardOpenOption.WRITE)) {
+            // Also drops a torn record left at the end by a crash
+            channel.truncate(log.size);
+            channel.position(log.size);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+        log.size += capacity;
+        log.length = length;
+    }
+
+    /** Points the log at new base content with the same text, e.g. after the entry was renamed. */
+    void restamp(long id, long baseStamp) throws IOException {
+        Log log = require(id);
+        ByteBuffer stamp = ByteBuffer.allocate(8).putLong(baseStamp).flip();
+        try (FileChannel channel = FileChannel.open(fileFor(id), StandardOpenOption.WRITE)) {
+            while (stamp.hasRemaining()) channel.write(stamp, 4 + stamp.position());
+        }
+        log.baseStamp = baseStamp;
+    }
+
+    /**
+     * Applies the entry's logged edits to its saved content. Returns null if the log was
+     * written against other content, e.g. the entry has changed on disk since.
+     */
+    String replay(long id, long baseStamp, String saved) throws IOException {
+        if (!hasPending(id)) return saved;
+        Contents contents = read(id);
+        if (contents == null || contents.baseStamp() != baseStamp || contents.baseLength() != saved.length()) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(saved);
+        for (TextEdit edit : contents.edits()) {
+            if (edit.offset() + edit.removed() > text.length()) return null;
+            edit.applyTo(text);
+        }
+        return text.toString();
+    }
+
+    void delete(long id) throws IOException {
+        load();
+        if (logs.remove(id) != null) Files.deleteIfExists(fileFor(id));
+    }
+
+    /** Deletes every entry's log. Callers must make sure no entry is being saved. */
+    void clear() throws IOException {
+        logs.clear();
+        if (Files.notExists(editsDir)) return;
+        try (Stream<Path> files = Files.list(editsDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Finds the logs left by earlier runs, the first time any log is used
+    private void load() throws IOException {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            if (Files.exists(editsDir)) {
+                try (Stream<Path> files = Files.list(editsDir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        if (!name.endsWith(SUFFIX)) continue;
+                        long id;
+                        try {
+                            id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+                        Contents contents = parse(Files.readAllBytes(file));
+                        if (contents == null) {
+                            Files.deleteIfExists(file);
+                            continue;
+                        }
+                        int length = contents.baseLength();
+                        for (TextEdit edit : contents.edits()) length += edit.lengthChange();
+                        logs.putIfAbsent(id, new Log(contents.baseStamp(), length, contents.size()));
+                    }
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    private Contents read(long id) throws IOException {
+        try {
+            return parse(Files.readAllBytes(fileFor(id)));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // Reads the header and the records up to the first damaged one; null without a valid header
+    private static Contents parse(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) return null;
+        long baseStamp = buffer.getLong();
+        int baseLength = buffer.getInt();
+        List<TextEdit> edits = new ArrayList<>();
+        int end = buffer.position();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE + TRAILER_SIZE) {
+            int start = buffer.position();
+            int offset = buffer.getInt();
+            int removed = buffer.getInt();
+            int payloadLength = buffer.getInt();
+            if (offset < 0 || removed < 0 || payloadLength < 0
+                    || payloadLength > buffer.remaining() - TRAILER_SIZE) break;
+            buffer.position(buffer.position() + payloadLength);
+            CRC32 crc = new CRC32();
+            crc.update(bytes, start, buffer.position() - start);
+            if ((int) crc.getValue() != buffer.getInt()) break;
+            String inserted = new String(bytes, start + RECORD_HEADER_SIZE, payloadLength, StandardCharsets.UTF_8);
+            edits.add(new TextEdit(offset, removed, inserted));
+            end = buffer.position();
+        }
+        return new Contents(baseStamp, baseLength, edits, end);
+    }
+
+    private Log require(long id) {
+        Log log = logs.get(id);
+        if (log == null) throw new IllegalStateException("No edit log for entry " + id);
+        return log;
+    }
+
+    private Path fileFor(long id) {
+        return editsDir.resolve(id + SUFFIX);
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows the document in the editor without serializing it. A script in the page
+ * ({@link #script()}) watches the DOM with a {@code MutationObserver} and reports which
+ * top-level blocks of the body changed since it was last asked; this class keeps the
+ * document as a {@link PieceTable} plus the length of each block, and turns a report into
+ * the {@link TextEdit}s that bring the stored HTML up to date. Typing in one paragraph
+ * costs that paragraph, not the document.
+ * <p>
+ * The first report after a page is loaded, or after {@link #reset()}, is a snapshot of
+ * the whole document. Edits only go out once that snapshot has been saved in full under
+ * the entry's title ({@link #savedInFull}), and a full save is due again after
+ * {@value #CONSOLIDATE_AFTER_SECONDS} seconds or once the edits add up to an eighth of
+ * the document, so the edit log stays short. Used on the FX thread only.
+ */
+final class EditTracker {
+    private static final long CONSOLIDATE_AFTER_SECONDS = 60;
+    private static final int MIN_CONSOLIDATE_CHARS = 64 * 1024;
+
+    // Installs the observer on first use in each page, then returns a report:
+    // "R<n>;" and n chunks (the markup before the blocks, each block, the markup after), or
+    // "D<n>;" and n hunks "<oldStart>,<oldCount>,<newCount>;" each followed by its new blocks.
+    // A chunk is "<length>;<text>".
+    private static final String SCRIPT = """
+            (function (snapshot) {
+              var body = document.body;
+              var tracker = window.diaryEditTracker;
+              if (!tracker || tracker.body !== body) {
+                tracker = window.diaryEditTracker = { body: body, blocks: [], dirty: new Set(), full: true };
+                tracker.observer = new MutationObserver(function (records) { note(tracker, records); });
+                tracker.observer.observe(document.documentElement,
+                    { childList: true, subtree: true, characterData: true, attributes: true });
+              }
+              function note(tracker, records) {
+                for (var i = 0; i < records.length; i++) {
+                  var node = records[i].target;
+                  if (node === tracker.body) {
+                    if (records[i].type === 'attributes') tracker.full = true;
+                  } else if (!tracker.body.contains(node)) {
+                    if (document.documentElement.contains(node)) tracker.full = true;
+                  } else {
+                    while (node.parentNode !== tracker.body) node = node.parentNode;
+                    tracker.dirty.add(node);
+                  }
+                }
+              }
+              function html(node) {
+                if (node.nodeType === 1) return node.outerHTML;
+                var box = document.createElement('div');
+                box.appendChild(node.cloneNode(false));
+                return box.innerHTML;
+              }
+              function open(element) {
+                var tag = element.cloneNode(false).outerHTML;
+                return tag.substring(0, tag.lastIndexOf('</'));
+              }
+              function chunk(text) { return text.length + ';' + text; }
+
+              note(tracker, tracker.observer.takeRecords());
+              var nodes = Array.prototype.slice.call(body.childNodes);
+              var old = tracker.blocks;
+              var dirty = tracker.dirty;
+              var full = snapshot || tracker.full;
+              tracker.blocks = nodes;
+              tracker.dirty = new Set();
+              tracker.full = false;
+              if (full) {
+                var head = document.head ? document.head.outerHTML : '';
+                var out = 'R' + (nodes.length + 2) + ';' + chunk(open(document.documentElement) + head + open(body));
+                for (var i = 0; i < nodes.length; i++) out += chunk(html(nodes[i]));
+                return out + chunk('</body></html>');
+              }
+              // Blocks that are unchanged and still in order are kept; the runs between them are hunks
+              var at = new Map();
+              for (var i = 0; i < old.length; i++) at.set(old[i], i);
+              var kept = [];
+              var last = -1;
+              for (var i = 0; i < nodes.length; i++) {
+                var index = at.get(nodes[i]);
+                if (index !== undefined && index > last && !dirty.has(nodes[i])) {
+                  kept.push(index, i);
+                  last = index;
+                }
+              }
+              kept.push(old.length, nodes.length);
+              var hunks = '';
+              var count = 0;
+              var oldFrom = 0;
+              var newFrom = 0;
+              for (var k = 0; k < kept.length; k += 2) {
+                if (kept[k] > oldFrom || kept[k + 1] > newFrom) {
+                  count++;
+                  hunks += oldFrom + ',' + (kept[k] - oldFrom) + ',' + (kept[k + 1] - newFrom) + ';';
+                  for (var j = newFrom; j < kept[k + 1]; j++) hunks += chunk(html(nodes[j]));
+                }
+                oldFrom = kept[k] + 1;
+                newFrom = kept[k + 1] + 1;
+              }
+              return 'D' + count + ';' + hunks;
+            })""";
+
+    private PieceTable document;
+    // Length of the markup before the first block, then of each block
+    private int prefixLength;
+    private final List<Integer> blockLengths = new ArrayList<>();
+    // Title the document was last saved in full under; null until then
+    private String savedTitle;
+    private long savedAt;
+    private long editedChars;
+
+    /** The call to run in the editor page; it returns the report to pass to {@link #apply}. */
+    String script() {
+        return SCRIPT + "(" + (document == null) + ")";
+    }
+
+    /**
+     * Applies a report from the page. Returns the edits it made to the document, in the
+     * order they apply, or null if the report was a snapshot and the document has to be
+     * saved in full.
+     */
+    List<TextEdit> apply(String report) {
+        try {
+            Reader reader = new Reader(report);
+            char kind = reader.next();
+            if (kind == 'R') {
+                snapshot(reader);
+                return null;
+            }
+            if (kind != 'D' || document == null) throw new IllegalArgumentException("Unexpected report");
+            return hunks(reader);
+        } catch (RuntimeException e) {
+            reset();
+            throw e;
+        }
+    }
+
+    /** Whether the edits since the last full save can be saved as edits to this title. */
+    boolean canAppendEdits(String title) {
+        if (document == null || !title.equals(savedTitle)) return false;
+        long age = System.nanoTime() - savedAt;
+        return age < CONSOLIDATE_AFTER_SECONDS * 1_000_000_000L
+                && editedChars < Math.max(MIN_CONSOLIDATE_CHARS, document.length() / 8);
+    }
+
+    /** Whether the tracker holds the page's document, i.e. a snapshot was taken since the last reset. */
+    boolean isTracking() {
+        return document != null;
+    }
+
+    /** Edits have been applied since the document was last saved in full. */
+    boolean hasUnsavedEdits() {
+        return document != null && editedChars > 0;
+    }
+
+    int length() {
+        return document == null ? 0 : document.length();
+    }
+
+    /** The whole document, for a full save. Folds the piece table back into one piece. */
+    String text() {
+        return document.compact();
+    }
+
+    /** Records that {@link #text()} was queued as a full save under this title. */
+    void savedInFull(String title) {
+        savedTitle = title;
+        savedAt = System.nanoTime();
+        editedChars = 0;
+    }
+
+    /** Makes the next save a full one, e.g. after appending edits failed. */
+    void requireFullSave() {
+        savedTitle = null;
+    }
+
+    /** Forgets the document; the next report is a snapshot. */
+    void reset() {
+        document = null;
+        blockLengths.clear();
+        savedTitle = null;
+    }
+
+    private void snapshot(Reader reader) {
+        int count = reader.number(';');
+        StringBuilder text = new StringBuilder();
+        blockLengths.clear();
+        for (int i = 0; i < count; i++) {
+            String chunk = reader.chunk();
+            text.append(chunk);
+            if (i == 0) {
+                prefixLength = chunk.length();
+            } else if (i < count - 1) {
+                blockLengths.add(chunk.length());
+            }
+        }
+        document = new PieceTable(text.toString());
+        savedTitle = null;
+    }
+
+    private List<TextEdit> hunks(Reader reader) {
+        int count = reader.number(';');
+        List<TextEdit> edits = new ArrayList<>();
+        // Hunks come front to back, numbered as the blocks were before any of them, and
+        // each is applied before the next, so later ones move by what earlier ones added
+        int shiftBlocks = 0;
+        for (int h = 0; h < count; h++) {
+            int oldStart = reader.number(',');
+            int oldCount = reader.number(',');
+            int newCount = reader.number(';');
+            int start = oldStart + shiftBlocks;
+            if (oldStart < 0 || oldCount < 0 || start + oldCount > blockLengths.size()) {
+                throw new IllegalArgumentException("Hunk out of range");
+            }
+            int offset = prefixLength;
+            for (int i = 0; i < start; i++) offset += blockLengths.get(i);
+            int removed = 0;
+            List<Integer> removedBlocks = blockLengths.subList(start, start + oldCount);
+            for (int length : removedBlocks) removed += length;
+            removedBlocks.clear();
+            StringBuilder inserted = new StringBuilder();
+            for (int i = 0; i < newCount; i++) {
+                String chunk = reader.chunk();
+                inserted.append(chunk);
+                blockLengths.add(start + i, chunk.length());
+            }
+            TextEdit edit = trim(offset, removed, inserted.toString());
+            if (edit != null) {
+                document.apply(edit);
+                edits.add(edit);
+                editedChars += edit.removed() + edit.inserted().length();
+            }
+            shiftBlocks += newCount - oldCount;
+        }
+        return edits;
+    }
+
+    // Narrows a block replacement down to the chars that differ; null if none do
+    private TextEdit trim(int offset, int removed, String inserted) {
+        String old = document.substring(offset, offset + removed);
+        int max = Math.min(old.length(), inserted.length());
+        int prefix = 0;
+        while (prefix < max && old.charAt(prefix) == inserted.charAt(prefix)) prefix++;
+        // Never split a surrogate pair, so each edit is valid text on its own
+        if (prefix > 0 && Character.isHighSurrogate(old.charAt(prefix - 1))) prefix--;
+        int suffix = 0;
+        while (suffix < max - prefix
+                && old.charAt(old.length() - 1 - suffix) == inserted.charAt(inserted.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(old.charAt(old.length() - suffix))) suffix--;
+        if (prefix + suffix == old.length() && prefix + suffix == inserted.length()) return null;
+        return new TextEdit(offset + prefix, old.length() - prefix - suffix,
+                inserted.substring(prefix, inserted.length() - suffix));
+    }
+
+    // Walks a report; lengths count UTF-16 chars on both sides
+    private static final class Reader {
+        private final String text;
+        private int position;
+
+        Reader(String text) {
+            this.text = text;
+        }
+
+        char next() {
+            return text.charAt(position++);
+        }
+
+        int number(char terminator) {
+            int end = text.indexOf(terminator, position);
+            if (end < 0) throw new IllegalArgumentException("Truncated report");
+            int value = Integer.parseInt(text, position, end, 10);
+            position = end + 1;
+            return value;
+        }
+
+        String chunk() {
+            int length = number(';');
+            String chunk = text.substring(position, position + length);
+            position += length;
+            return chunk;
+        }
+    }
+}
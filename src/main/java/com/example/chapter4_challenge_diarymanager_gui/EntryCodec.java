@@ -0,0 +1,190 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * How entry content is laid out at rest. {@link #PLAIN} stores UTF-8 HTML as before;
+ * {@link #DEFLATE} compresses it with a preset dictionary of the markup the editor
+ * repeats in every entry (the WebKit document wrapper, table cell styles and so on), so
+ * even short entries shrink.
+ * <p>
+ * Compressed content starts with a header that plain HTML never does: a zero byte,
+ * {@code "DZ"}, the dictionary version and the uncompressed length. Decoding checks for
+ * the header, so stores read both layouts whichever codec they write with, and a diary
+ * can switch codecs without being converted. Content that would not get smaller, or is
+ * under {@value #MIN_COMPRESSED_BYTES} bytes, is always stored plain.
+ * <p>
+ * Choose the codec with {@code -Ddiary.compression=none|deflate}.
+ */
+public final class EntryCodec {
+    public static final EntryCodec PLAIN = new EntryCodec(false);
+    public static final EntryCodec DEFLATE = new EntryCodec(true);
+
+    private static final int MIN_COMPRESSED_BYTES = 256;
+    private static final byte DICTIONARY_VERSION = 1;
+    private static final int HEADER_SIZE = 3 + 1 + 4;
+    // Deflate prefers the most common strings near the end of the dictionary
+    private static final byte[] DICTIONARY = ("<img src=\"https://picsum.photos/400/300\" alt=\"\">"
+            + "<a href=\"https://\"></a><ol><li></li></ol><ul><li></li></ul><h1></h1><h2></h2><h3></h3>"
+            + "<font face=\"\" size=\"\" color=\"#\"></font><span style=\"font-family: ; font-size: ; color: rgb(\">"
+            + "</span><strike></strike><u></u><i></i><b></b><div style=\"text-align: center;\"></div>"
+            + "<table style=\"border-collapse: collapse; width: 100%; margin: 10px 0; border: 1px solid #ddd;\"><tbody>"
+            + "<tr><td style=\"border: 1px solid #ddd; padding: 8px;\">Cell </td></tr></tbody></table>"
+            + "<td style='border: 1px solid #ddd; padding: 8px;'>Cell </td><br>&nbsp;<div></div> the and to of a in"
+            + " <p></p><html dir=\"ltr\"><head></head><body contenteditable=\"true\"><p></p></body></html>")
+            .getBytes(StandardCharsets.UTF_8);
+
+    // Setting up a Deflater allocates its whole window, which costs more than compressing a
+    // typical entry, so a few are kept for reuse. Storage calls run on short-lived virtual
+    // threads, so they share one pool instead of each thread keeping its own.
+    private static final int POOLED = Runtime.getRuntime().availableProcessors();
+    private static final Pool<Deflater> DEFLATERS =
+            new Pool<>(POOLED, () -> new Deflater(Deflater.DEFAULT_COMPRESSION), Deflater::end);
+    private static final Pool<Inflater> INFLATERS = new Pool<>(POOLED, Inflater::new, Inflater::end);
+
+    private final boolean compressing;
+
+    private EntryCodec(boolean compressing) {
+        this.compressing = compressing;
+    }
+
+    /** The codec named by the {@code diary.compression} system property; plain by default. */
+    public static EntryCodec fromProperty() {
+        String name = System.getProperty("diary.compression", "none");
+        return switch (name) {
+            case "none" -> PLAIN;
+            case "deflate" -> DEFLATE;
+            default -> throw new IllegalArgumentException("Unknown diary.compression: " + name);
+        };
+    }
+
+    public boolean isCompressing() {
+        return compressing;
+    }
+
+    /** Returns the bytes to store for the given content. */
+    public byte[] encode(String content) {
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        if (!compressing || plain.length < MIN_COMPRESSED_BYTES) return plain;
+
+        Deflater deflater = DEFLATERS.acquire();
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(plain);
+            deflater.finish();
+            // Anything that does not fit in the plain size is not worth storing compressed
+            byte[] encoded = new byte[plain.length];
+            int length = HEADER_SIZE;
+            while (!deflater.finished() && length < encoded.length) {
+                length += deflater.deflate(encoded, length, encoded.length - length);
+            }
+            if (!deflater.finished()) return plain;
+            ByteBuffer.wrap(encoded).order(ByteOrder.BIG_ENDIAN)
+                    .put((byte) 0).put((byte) 'D').put((byte) 'Z').put(DICTIONARY_VERSION).putInt(plain.length);
+            return Arrays.copyOf(encoded, length);
+        } finally {
+            deflater.reset();
+            DEFLATERS.release(deflater);
+        }
+    }
+
+    /** True if the stored bytes are compressed. Does not move the buffer's position. */
+    public static boolean isCompressed(ByteBuffer stored) {
+        int p = stored.position();
+        return stored.remaining() >= HEADER_SIZE
+                && stored.get(p) == 0 && stored.get(p + 1) == 'D' && stored.get(p + 2) == 'Z';
+    }
+
+    /**
+     * Returns the UTF-8 content for stored bytes in either layout. Plain content is
+     * returned as is; compressed content is inflated into a new buffer.
+     */
+    public static ByteBuffer decode(ByteBuffer stored) throws ZipException {
+        if (!isCompressed(stored)) return stored;
+        return ByteBuffer.wrap(inflate(stored)).asReadOnlyBuffer();
+    }
+
+    /** Decodes stored bytes straight to a string. */
+    public static String decodeToString(byte[] stored) throws ZipException {
+        ByteBuffer buffer = ByteBuffer.wrap(stored);
+        return new String(isCompressed(buffer) ? inflate(buffer) : stored, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] inflate(ByteBuffer stored) throws ZipException {
+        ByteBuffer input = stored.duplicate();
+        input.position(input.position() + 3);
+        byte version = input.get();
+        int length = input.getInt();
+        if (version != DICTIONARY_VERSION) {
+            throw new ZipException("Unsupported compressed entry (version " + version + ")");
+        }
+        // Deflate cannot expand data more than about 1032 to 1, so a larger length is a damaged header
+        if (length < 0 || length / 1032 > input.remaining()) throw new ZipException("Corrupt compressed entry");
+
+        byte[] content = new byte[length];
+        Inflater inflater = INFLATERS.acquire();
+        try {
+            inflater.setInput(input);
+            int filled = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(content, filled, length - filled);
+                filled += n;
+                if (n == 0) {
+                    if (!inflater.needsDictionary()) break;
+                    inflater.setDictionary(DICTIONARY);
+                }
+            }
+            if (!inflater.finished() || filled != length) throw new ZipException("Truncated compressed entry");
+            return content;
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt compressed entry: " + e.getMessage());
+        } finally {
+            inflater.reset();
+            INFLATERS.release(inflater);
+        }
+    }
+
+    // Keeps up to capacity spare instances; any returned beyond that are ended right away
+    // to free their native memory
+    private static final class Pool<T> {
+        private final int capacity;
+        private final Supplier<T> factory;
+        private final Consumer<T> end;
+        private final Queue<T> spare = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        Pool(int capacity, Supplier<T> factory, Consumer<T> end) {
+            this.capacity = capacity;
+            this.factory = factory;
+            this.end = end;
+        }
+
+        T acquire() {
+            T instance = spare.poll();
+            if (instance == null) return factory.get();
+            size.decrementAndGet();
+            return instance;
+        }
+
+        void release(T instance) {
+            if (size.incrementAndGet() <= capacity) {
+                spare.offer(instance);
+            } else {
+                size.decrementAndGet();
+                end.accept(instance);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes entries out in one of the {@link ExportFormat}s. Entry bytes go straight from the
+ * store to the output without being decoded, and only the few entries being read ahead
+ * are held in memory, so exporting the whole diary does not build it up on the heap.
+ * Archives and documents are written to a temporary file first and only moved into place
+ * once complete; a cancelled or failed export leaves no partial file behind.
+ */
+final class EntryExporter {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEEE d MMMM yyyy, HH:mm", Locale.ENGLISH);
+    private static final byte[] BODY_OPEN = "<body".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_CLOSE = "</body".getBytes(StandardCharsets.US_ASCII);
+
+    private EntryExporter() {
+    }
+
+    static BulkResult export(FileManager fileManager, List<EntryMetadata> entries, Path target,
+                             ExportFormat format, Executor executor, FileManager.BulkListener listener)
+            throws IOException {
+        Map<EntryMetadata, String> fileNames = fileNames(entries);
+        return switch (format) {
+            case HTML_FOLDER -> {
+                Files.createDirectories(target);
+                yield BulkRunner.forEach(entries, EntryMetadata::getTitle, BulkRunner.DEFAULT_PARALLELISM, executor,
+                        listener, metadata -> {
+                            Path file = target.resolve(fileNames.get(metadata));
+                            try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                                writeFully(out, fileManager.readEntryBytes(metadata.getTitle()));
+                            }
+                            Files.setLastModifiedTime(file, modifiedTime(metadata));
+                        });
+            }
+            case ZIP -> writeAtomically(target, out -> {
+                ZipOutputStream zip = new ZipOutputStream(out);
+                WritableByteChannel channel = Channels.newChannel(zip);
+                BulkResult result = BulkRunner.inOrder(entries, EntryMetadata::getTitle,
+                        BulkRunner.DEFAULT_PARALLELISM, executor, listener,
+                        metadata -> fileManager.readEntryBytes(metadata.getTitle()),
+                        (metadata, content) -> {
+                            ZipEntry entry = new ZipEntry(fileNames.get(metadata));
+                            entry.setLastModifiedTime(modifiedTime(metadata));
+                            zip.putNextEntry(entry);
+                            writeFully(channel, content);
+                            zip.closeEntry();
+                        });
+                zip.finish();
+                return result;
+            });
+            case WORD -> writeAtomically(target, out -> {
+                WritableByteChannel channel = Channels.newChannel(out);
+                write(out, "<html xmlns:o=\"urn:schemas-microsoft-com:office:office\" "
+                        + "xmlns:w=\"urn:schemas-microsoft-com:office:word\" xmlns=\"http://www.w3.org/TR/REC-html40\">"
+                        + "<head><meta charset=\"utf-8\"><title>Diary</title></head><body>");
+                boolean[] first = {true};
+                BulkResult result = BulkRunner.inOrder(entries, EntryMetadata::getTitle,
+                        BulkRunner.DEFAULT_PARALLELISM, executor, listener,
+                        metadata -> fileManager.readEntryBytes(metadata.getTitle()),
+                        (metadata, content) -> {
+                            if (!first[0]) write(out, "<br clear=\"all\" style=\"page-break-before:always\">");
+                            first[0] = false;
+                            write(out, "<h1>" + escape(metadata.getTitle()) + "</h1><p><i>"
+                                    + DATE_FORMAT.format(metadata.getCreated()) + "</i></p>");
+                            writeFully(channel, bodyOf(content));
+                        });
+                write(out, "</body></html>");
+                return result;
+            });
+        };
+    }
+
+    @FunctionalInterface
+    private interface StreamWriter {
+        BulkResult write(OutputStream out) throws IOException;
+    }
+
+    private static BulkResult writeAtomically(Path target, StreamWriter writer) throws IOException {
+        Path tempFile = target.resolveSibling(target.getFileName() + ".part");
+        boolean keep = false;
+        try {
+            BulkResult result;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile), 64 * 1024)) {
+                result = writer.write(out);
+            }
+            if (!result.isCancelled()) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+                keep = true;
+            }
+            return result;
+        } finally {
+            if (!keep) Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // File names that are valid on every platform and unique within the export
+    private static Map<EntryMetadata, String> fileNames(List<EntryMetadata> entries) {
+        Map<EntryMetadata, String> names = new LinkedHashMap<>();
+        Set<String> taken = new HashSet<>();
+        for (EntryMetadata metadata : entries) {
+            String base = metadata.getTitle().replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").strip();
+            if (base.isEmpty() || base.startsWith(".")) base = "_" + base;
+            String name = base + ".html";
+            for (int n = 2; !taken.add(name.toLowerCase(Locale.ROOT)); n++) {
+                name = base + " (" + n + ").html";
+            }
+            names.put(metadata, name);
+        }
+        return names;
+    }
+
+    // The part between <body ...> and </body>, found on the raw bytes since both tags are ASCII
+    private static ByteBuffer bodyOf(ByteBuffer html) {
+        int open = indexOf(html, BODY_OPEN, html.position());
+        if (open < 0) return html;
+        int start = open;
+        while (start < html.limit() && html.get(start) != '>') start++;
+        int end = indexOf(html, BODY_CLOSE, start);
+        return html.duplicate().limit(end < 0 ? html.limit() : end).position(Math.min(start + 1, html.limit()));
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] ascii, int from) {
+        outer:
+        for (int i = from; i <= buffer.limit() - ascii.length; i++) {
+            for (int j = 0; j < ascii.length; j++) {
+                if (Character.toLowerCase(buffer.get(i + j)) != ascii[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer content) throws IOException {
+        ByteBuffer remaining = content.duplicate();
+        while (remaining.hasRemaining()) channel.write(remaining);
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static FileTime modifiedTime(EntryMetadata metadata) {
+        return FileTime.from(metadata.getLastModified().atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
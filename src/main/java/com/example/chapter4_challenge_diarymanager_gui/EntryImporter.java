@@ -0,0 +1,189 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds the HTML and Markdown files to import in a mix of folders (searched recursively),
+ * zip archives and single files. Each file becomes one entry titled after the file name
+ * and dated by the file's modification time. Markdown is converted to the HTML the editor
+ * works with. Archives stay open until the importer is closed.
+ */
+final class EntryImporter implements Closeable {
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)\\s*#*$");
+    private static final Pattern BULLET = Pattern.compile("^\\s*[-*+]\\s+(.*)$");
+    private static final Pattern NUMBERED = Pattern.compile("^\\s*\\d+[.)]\\s+(.*)$");
+    private static final Pattern BOLD = Pattern.compile("(\\*\\*|__)(.+?)\\1");
+    private static final Pattern ITALIC = Pattern.compile("(\\*|_)(.+?)\\1");
+    private static final Pattern CODE = Pattern.compile("`([^`]+)`");
+    private static final Pattern LINK = Pattern.compile("\\[([^\\]]+)]\\(([^)\\s]+)\\)");
+
+    /** One file to import; {@code zip} is null for files on disk. */
+    record Item(String name, String title, LocalDateTime modified, Path file, ZipFile zip, ZipEntry entry) {}
+
+    private final List<ZipFile> archives = new ArrayList<>();
+    private final List<Item> items = new ArrayList<>();
+
+    EntryImporter(List<Path> sources) throws IOException {
+        try {
+            for (Path source : sources) {
+                if (Files.isDirectory(source)) {
+                    try (Stream<Path> files = Files.walk(source)) {
+                        for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                            addFile(file);
+                        }
+                    }
+                } else if (source.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                    addArchive(source);
+                } else {
+                    addFile(source);
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    List<Item> items() {
+        return items;
+    }
+
+    /** Reads an item as entry HTML. */
+    String read(Item item) throws IOException {
+        String text;
+        if (item.zip() != null) {
+            try (InputStream in = item.zip().getInputStream(item.entry())) {
+                text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } else {
+            text = Files.readString(item.file());
+        }
+        return isMarkdown(item.name()) ? markdownToHtml(text) : text;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ZipFile archive : archives) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        archives.clear();
+        if (failure != null) throw failure;
+    }
+
+    private void addFile(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (!isSupported(name)) return;
+        LocalDateTime modified = LocalDateTime.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+        items.add(new Item(file.toString(), titleOf(name), modified, file, null, null));
+    }
+
+    private void addArchive(Path archive) throws IOException {
+        ZipFile zip = new ZipFile(archive.toFile(), StandardCharsets.UTF_8);
+        archives.add(zip);
+        List<ZipEntry> entries = new ArrayList<>();
+        for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ) {
+            ZipEntry entry = e.nextElement();
+            if (!entry.isDirectory() && isSupported(entry.getName())) entries.add(entry);
+        }
+        entries.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (ZipEntry entry : entries) {
+            String fileName = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+            LocalDateTime modified = LocalDateTime.ofInstant(entry.getLastModifiedTime().toInstant(), ZoneId.systemDefault());
+            items.add(new Item(archive.getFileName() + "!/" + entry.getName(), titleOf(fileName), modified,
+                    null, zip, entry));
+        }
+    }
+
+    private static boolean isSupported(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        String fileName = lower.substring(lower.lastIndexOf('/') + 1);
+        if (fileName.startsWith(".")) return false;
+        return lower.endsWith(".html") || lower.endsWith(".htm") || isMarkdown(lower);
+    }
+
+    private static boolean isMarkdown(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".md") || lower.endsWith(".markdown");
+    }
+
+    private static String titleOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return (dot > 0 ? fileName.substring(0, dot) : fileName).strip();
+    }
+
+    /**
+     * Converts the common subset of Markdown: headings, paragraphs, bulleted and numbered
+     * lists, bold, italic, inline code and links. Anything else is kept as plain text.
+     */
+    static String markdownToHtml(String markdown) {
+        StringBuilder html = new StringBuilder("<html dir=\"ltr\"><head></head><body contenteditable=\"true\">");
+        StringBuilder paragraph = new StringBuilder();
+        String openList = null;
+        for (String line : markdown.split("\\R", -1)) {
+            Matcher heading = HEADING.matcher(line);
+            Matcher bullet = BULLET.matcher(line);
+            Matcher numbered = NUMBERED.matcher(line);
+            String listTag = bullet.matches() ? "ul" : numbered.matches() ? "ol" : null;
+            if (line.isBlank() || heading.matches() || listTag != null) {
+                flushParagraph(html, paragraph);
+            }
+            if (openList != null && !openList.equals(listTag)) {
+                html.append("</").append(openList).append('>');
+                openList = null;
+            }
+            if (heading.matches()) {
+                int level = heading.group(1).length();
+                html.append("<h").append(level).append('>').append(inline(heading.group(2)))
+                        .append("</h").append(level).append('>');
+            } else if (listTag != null) {
+                if (openList == null) {
+                    html.append('<').append(listTag).append('>');
+                    openList = listTag;
+                }
+                html.append("<li>").append(inline((bullet.matches() ? bullet : numbered).group(1))).append("</li>");
+            } else if (!line.isBlank()) {
+                if (!paragraph.isEmpty()) paragraph.append(' ');
+                paragraph.append(inline(line.strip()));
+            }
+        }
+        flushParagraph(html, paragraph);
+        if (openList != null) html.append("</").append(openList).append('>');
+        return html.append("</body></html>").toString();
+    }
+
+    private static void flushParagraph(StringBuilder html, StringBuilder paragraph) {
+        if (paragraph.isEmpty()) return;
+        html.append("<p>").append(paragraph).append("</p>");
+        paragraph.setLength(0);
+    }
+
+    private static String inline(String text) {
+        String html = text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        html = CODE.matcher(html).replaceAll("<code>$1</code>");
+        html = LINK.matcher(html).replaceAll("<a href=\"$2\">$1</a>");
+        html = BOLD.matcher(html).replaceAll("<b>$2</b>");
+        return ITALIC.matcher(html).replaceAll("<i>$2</i>");
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.VBox;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * List cell showing an entry's title over its date. The node graph is built once per
+ * cell and reused as the list scrolls; styling comes from the stylesheet.
+ */
+public final class EntryListCell extends ListCell<EntryMetadata> {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMM");
+
+    private final VBox graphic = new VBox(0);
+    private final Label titleLabel = new Label();
+    private final Label dateLabel = new Label();
+
+    public EntryListCell() {
+        getStyleClass().add("entry-cell");
+        titleLabel.getStyleClass().add("entry-cell-title");
+        dateLabel.getStyleClass().add("entry-cell-date");
+        graphic.getChildren().addAll(titleLabel, dateLabel);
+    }
+
+    @Override
+    protected void updateItem(EntryMetadata item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            setText(null);
+            setGraphic(null);
+        } else {
+            titleLabel.setText(item.getTitle());
+            dateLabel.setText(item.getLastModified().format(DATE_FORMAT));
+            setGraphic(graphic);
+        }
+    }
+}
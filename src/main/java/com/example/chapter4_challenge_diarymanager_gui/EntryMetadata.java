@@ -3,17 +3,37 @@ package com.example.chapter4_challenge_diarymanager_gui;
 import java.time.LocalDateTime;
 
 public class EntryMetadata {
+    private final long id;
     private final String title;
+    private final LocalDateTime created;
     private final LocalDateTime lastModified;
+    private final long size;
+    private final int wordCount;
 
+    /** What a store knows about an entry; {@link FileManager} fills in the rest. */
     public EntryMetadata(String title, LocalDateTime lastModified) {
+        this(0, title, lastModified, lastModified, 0, 0);
+    }
+
+    public EntryMetadata(long id, String title, LocalDateTime created, LocalDateTime lastModified,
+                         long size, int wordCount) {
+        this.id = id;
         this.title = title;
+        this.created = created;
         this.lastModified = lastModified;
+        this.size = size;
+        this.wordCount = wordCount;
     }
 
+    /** Stable id that survives edits and renames; 0 if the entry has not been tracked yet. */
+    public long getId() { return id; }
     public String getTitle() { return title; }
+    public LocalDateTime getCreated() { return created; }
     public LocalDateTime getLastModified() { return lastModified; }
+    /** Size of the stored content in UTF-8 bytes. */
+    public long getSize() { return size; }
+    public int getWordCount() { return wordCount; }
 
     @Override
     public String toString() { return title; }
-}
\ No newline at end of file
+}
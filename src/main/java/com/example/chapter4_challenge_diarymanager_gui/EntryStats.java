@@ -0,0 +1,53 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+/** Per-entry figures kept by {@link StatsAggregator} so statistics never re-read content. */
+public class EntryStats {
+    private final String title;
+    private final int wordCount;
+    private final int charCount;
+    private final int textLength;
+    private final LocalDateTime created;
+    private final LocalDateTime modified;
+
+    public EntryStats(String title, int wordCount, int charCount, int textLength,
+                      LocalDateTime created, LocalDateTime modified) {
+        this.title = title;
+        this.wordCount = wordCount;
+        this.charCount = charCount;
+        this.textLength = textLength;
+        this.created = created;
+        this.modified = modified;
+    }
+
+    /** Measures an entry's HTML in a single pass. */
+    public static EntryStats of(String title, CharSequence html, LocalDateTime created, LocalDateTime modified) {
+        HtmlTokenizer tokenizer = new HtmlTokenizer();
+        tokenizer.countWords(html);
+        return of(title, tokenizer, created, modified);
+    }
+
+    /** Measures an entry's UTF-8 encoded HTML in a single pass, without decoding it to a String. */
+    public static EntryStats of(String title, ByteBuffer html, LocalDateTime created, LocalDateTime modified) {
+        HtmlTokenizer tokenizer = new HtmlTokenizer();
+        tokenizer.tokenize(html, (buffer, length) -> { });
+        return of(title, tokenizer, created, modified);
+    }
+
+    /** Builds the record from a tokenizer that has just measured the entry. */
+    static EntryStats of(String title, HtmlTokenizer tokenizer, LocalDateTime created, LocalDateTime modified) {
+        return new EntryStats(title, tokenizer.getTokenCount(), tokenizer.getInputLength(),
+                tokenizer.getTextLength(), created, modified);
+    }
+
+    public String getTitle() { return title; }
+    public int getWordCount() { return wordCount; }
+    /** Length of the stored HTML in characters. */
+    public int getCharCount() { return charCount; }
+    /** Length of the text with all tags removed. */
+    public int getTextLength() { return textLength; }
+    public LocalDateTime getCreated() { return created; }
+    public LocalDateTime getModified() { return modified; }
+}
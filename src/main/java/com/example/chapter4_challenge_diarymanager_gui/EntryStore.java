@@ -0,0 +1,74 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Storage backend behind {@link FileManager}. Implementations only deal with persisting
+ * entry content; indexing and caching stay in FileManager.
+ */
+public interface EntryStore extends Closeable {
+
+    /** Writes the entry, replacing any existing content, and returns its new metadata. */
+    EntryMetadata save(String title, String content) throws IOException;
+
+    /**
+     * Writes an entry with a given modification time. Used when migrating between stores,
+     * so entries keep their place in the list and calendar.
+     */
+    default EntryMetadata importEntry(String title, String content, LocalDateTime modified) throws IOException {
+        return save(title, content);
+    }
+
+    /** Reads an entry's content, throwing {@link java.nio.file.NoSuchFileException} if it does not exist. */
+    String read(String title) throws IOException;
+
+    /**
+     * Reads an entry's content as UTF-8 bytes without decoding it. Large entries may come
+     * back as a read-only memory-mapped view of the underlying file, so the buffer should
+     * be consumed promptly rather than kept around.
+     */
+    default ByteBuffer readBytes(String title) throws IOException {
+        return ByteBuffer.wrap(read(title).getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Moves an entry to a new title, keeping its content and modification time. Throws
+     * {@link java.nio.file.FileAlreadyExistsException} if the new title is taken. The
+     * default copies the entry and then deletes the original.
+     */
+    default EntryMetadata rename(String oldTitle, String newTitle) throws IOException {
+        if (stat(newTitle) != null) throw new FileAlreadyExistsException(newTitle);
+        EntryMetadata original = stat(oldTitle);
+        if (original == null) throw new NoSuchFileException(oldTitle);
+        EntryMetadata renamed = importEntry(newTitle, read(oldTitle), original.getLastModified());
+        delete(oldTitle);
+        return renamed;
+    }
+
+    /** Removes an entry. Returns false if there was nothing to remove. */
+    boolean delete(String title) throws IOException;
+
+    /** Returns the current metadata of one entry, or null if it does not exist. */
+    default EntryMetadata stat(String title) throws IOException {
+        for (EntryMetadata metadata : list()) {
+            if (metadata.getTitle().equals(title)) return metadata;
+        }
+        return null;
+    }
+
+    /** Lists every stored entry. This may be a full scan, so callers should cache the result. */
+    List<EntryMetadata> list() throws IOException;
+
+    void clear() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
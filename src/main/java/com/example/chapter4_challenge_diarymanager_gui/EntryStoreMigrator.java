@@ -0,0 +1,28 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/** Copies every entry from one store to another, keeping modification times. */
+public final class EntryStoreMigrator {
+
+    private EntryStoreMigrator() {
+    }
+
+    /**
+     * Migrates all entries, oldest first. The source is left untouched, and running the
+     * migration again simply overwrites the copies in the target.
+     *
+     * @return the number of entries copied
+     */
+    public static int migrate(EntryStore source, EntryStore target) throws IOException {
+        List<EntryMetadata> entries = new ArrayList<>(source.list());
+        entries.sort(Comparator.comparing(EntryMetadata::getLastModified));
+        for (EntryMetadata metadata : entries) {
+            target.importEntry(metadata.getTitle(), source.read(metadata.getTitle()), metadata.getLastModified());
+        }
+        return entries.size();
+    }
+}
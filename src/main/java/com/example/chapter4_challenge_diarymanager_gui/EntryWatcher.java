@@ -0,0 +1,112 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the entry directory for changes made outside the application (sync tools,
+ * a second instance) and applies them to the {@link FileManager} indexes one entry at
+ * a time. Events are collected until the directory has been quiet for the batch window,
+ * so a sync dropping a thousand files results in one notification. If the OS reports an
+ * overflow, the watcher falls back to a single full reconcile.
+ */
+class EntryWatcher implements Closeable {
+    private final Path directory;
+    private final FileManager fileManager;
+    private final Consumer<Set<String>> onChange;
+    private final long batchMillis;
+    private final Metrics.Counter errors;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * @param onChange called on the watcher thread with the titles that changed; an empty
+     *                 set means the whole index was reloaded
+     * @param errors   counts the changes that could not be applied
+     */
+    EntryWatcher(Path directory, FileManager fileManager, Consumer<Set<String>> onChange, long batchMillis,
+                 Metrics.Counter errors) throws IOException {
+        this.directory = directory;
+        this.fileManager = fileManager;
+        this.onChange = onChange;
+        this.batchMillis = batchMillis;
+        this.errors = errors;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "entry-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<String> titles = new HashSet<>();
+                boolean overflow = drain(watchService.take(), titles);
+                // Keep collecting until the burst is over
+                WatchKey next;
+                while ((next = watchService.poll(batchMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= drain(next, titles);
+                }
+                apply(titles, overflow);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    // Collects entry titles from the key's events; returns true if events were lost
+    private boolean drain(WatchKey key, Set<String> titles) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            String name = event.context().toString();
+            // Our own temp files and sidecars start with a dot
+            if (name.endsWith(".html") && !name.startsWith(".")) {
+                titles.add(name.substring(0, name.length() - ".html".length()));
+            }
+        }
+        if (!key.reset()) {
+            System.err.println("Stopped watching " + directory + "; it is no longer accessible");
+            errors.increment();
+            Thread.currentThread().interrupt();
+        }
+        return overflow;
+    }
+
+    private void apply(Set<String> titles, boolean overflow) {
+        try {
+            if (overflow) {
+                fileManager.reconcile();
+                onChange.accept(Set.of());
+                return;
+            }
+            Set<String> changed = new HashSet<>();
+            for (String title : titles) {
+                if (fileManager.refreshEntry(title)) changed.add(title);
+            }
+            if (!changed.isEmpty()) onChange.accept(changed);
+        } catch (IOException e) {
+            e.printStackTrace();
+            errors.increment();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
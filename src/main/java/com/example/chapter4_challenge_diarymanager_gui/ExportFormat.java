@@ -0,0 +1,22 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/** Output layouts for {@link FileManager#exportEntries}. */
+public enum ExportFormat {
+    /** One {@code <title>.html} file per entry in a directory. */
+    HTML_FOLDER,
+    /** A zip archive with one {@code <title>.html} file per entry. */
+    ZIP,
+    /** A single Word document (HTML that Word opens as a {@code .doc}), one entry per page. */
+    WORD;
+
+    /** Picks the format from the target's extension: {@code .zip}, {@code .doc}, or a folder otherwise. */
+    public static ExportFormat forTarget(Path target) {
+        String name = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip")) return ZIP;
+        if (name.endsWith(".doc")) return WORD;
+        return HTML_FOLDER;
+    }
+}
@@ -1,77 +1,1073 @@
 package com.example.chapter4_challenge_diarymanager_gui;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-public class FileManager {
-    private final Path storageDir = Paths.get("diary_entries");
+/**
+ * The single entry point for storage. Safe to share between threads:
+ * <ul>
+ * <li>Each entry is guarded by one of {@value #LOCK_STRIPES} read/write locks, picked by
+ * title. Saves, deletes, renames and refreshes hold the entry's write lock from the
+ * store write through the index updates, so two writes to one entry never interleave and
+ * the last one to finish is the one every index shows. Writes to entries on different
+ * stripes run in parallel.</li>
+ * <li>Reads of an entry's content hold its read lock, so they see either the old or the
+ * new content, never a mix; a content cache hit takes no lock at all.</li>
+ * <li>Metadata lookups, listings and searches never block on the store. The listing is an
+ * immutable snapshot that is republished after each change.</li>
+ * <li>{@link #clearAllEntries()} excludes every other storage operation while it runs.</li>
+ * </ul>
+ * Visitors passed to {@link #forEachEntry} run without any lock held.
+ */
+public final class FileManager {
+    // Newest entries first, title as a tie-breaker so the ordering is total
+    private static final Comparator<EntryMetadata> ENTRY_ORDER =
+            Comparator.comparing(EntryMetadata::getLastModified).reversed()
+                    .thenComparing(EntryMetadata::getTitle);
+
+    // Content cache budget; override with -Ddiary.cache.bytes
+    private static final long DEFAULT_CACHE_BYTES = 16L * 1024 * 1024;
+    private static final Path DEFAULT_STORAGE_DIR = Paths.get("diary_entries");
+    private static final int LOCK_STRIPES = 64;
+    private static final int SEARCH_LIMIT = 200;
+
+    private final Path storageDir;
+    // Null until opened; a snapshot open leaves that to the first call that needs it,
+    // normally the background reconcile. Always use store().
+    private volatile EntryStore store;
+    private final Object storeOpenLock = new Object();
+    private final SearchIndex searchIndex;
+    private final MetadataStore metadataStore;
+    private final RevisionStore revisions;
+    private final EditLog editLog;
+    private final StatsAggregator stats = new StatsAggregator();
+    private final CalendarIndex calendar = new CalendarIndex();
+    private final ContentCache contentCache = new ContentCache(Long.getLong("diary.cache.bytes", DEFAULT_CACHE_BYTES));
+
+    private final Metrics metrics = new Metrics();
+    private final Metrics.Timer saveTimer = metrics.timer("save", "Entry saves and imports, including indexing and history.");
+    private final Metrics.Timer readTimer = metrics.timer("read", "Entry content reads, including cache hits.");
+    private final Metrics.Timer listTimer = metrics.timer("list", "Listings of every entry's metadata.");
+    private final Metrics.Timer deleteTimer = metrics.timer("delete", "Entry deletes.");
+    private final Metrics.Timer renameTimer = metrics.timer("rename", "Entry renames.");
+    private final Metrics.Timer searchTimer = metrics.timer("search", "Full-text searches.");
+    private final Metrics.Timer editTimer = metrics.timer("edit", "Saves that appended edits instead of rewriting the entry.");
+    private final Metrics.Counter errors = metrics.counter("errors", "Errors that were logged rather than thrown.");
+
+    // Per-entry locks, plus a store-wide lock that every entry operation holds shared and
+    // clearAllEntries holds exclusively
+    private final ReadWriteLock[] entryLocks = new ReadWriteLock[LOCK_STRIPES];
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+
+    // Resident metadata index, loaded from the metadata sidecar and then kept in step with
+    // every write. Updated under "this"; lookups read the concurrent maps directly.
+    private final Map<String, EntryMetadata> entriesByTitle = new ConcurrentHashMap<>();
+    private final Map<Long, EntryMetadata> entriesById = new ConcurrentHashMap<>();
+    private final Set<EntryMetadata> sortedEntries = new ConcurrentSkipListSet<>(ENTRY_ORDER);
+    // Odd while the index is being changed and bumped again when the change is done; a
+    // listing copied without locking is only used if the version was even and unchanged
+    private volatile long version;
+    private int changeDepth;
+    private volatile Listing listing;
+    private long nextId = 1;
+    private boolean metadataDirty;
+    private volatile boolean searchIndexLoaded;
+
+    private record Listing(long version, List<EntryMetadata> entries) {}
+
+    @FunctionalInterface
+    private interface StoreAction<T> {
+        T run() throws IOException;
+    }
 
     public FileManager() {
+        this(DEFAULT_STORAGE_DIR);
+    }
+
+    /**
+     * Opens the diary in the given directory. The storage backend is picked with the
+     * {@code diary.store} system property: {@code directory} (the default, one HTML file
+     * per entry) or {@code journal} (segmented append-only log under {@code journal/}).
+     * {@code -Ddiary.compression=deflate} stores new and updated entries compressed; see
+     * {@link EntryCodec}.
+     */
+    public FileManager(Path storageDir) {
+        this(storageDir, null);
+    }
+
+    public FileManager(Path storageDir, EntryStore store) {
+        this(storageDir, store, true);
+    }
+
+    private FileManager(Path storageDir, EntryStore store, boolean reconcileNow) {
+        this.storageDir = storageDir;
+        this.searchIndex = new SearchIndex(storageDir.resolve(".search-index"));
+        this.metadataStore = new MetadataStore(storageDir.resolve(".entry-meta"));
+        this.revisions = new RevisionStore(storageDir.resolve(".revisions"));
+        this.editLog = new EditLog(storageDir.resolve(".edits"));
+        metrics.gauge("entries", "Entries in the diary.", entriesByTitle::size);
+        metrics.gauge("edit_logs", "Entries with edits not yet saved in full.", editLog::getPendingCount);
+        metrics.gauge("cache_bytes", "Bytes of entry content in the cache.", contentCache::getSizeBytes);
+        metrics.gauge("cache_hit_ratio", "Share of reads served from the content cache.", () -> {
+            long hits = contentCache.getHitCount();
+            long total = hits + contentCache.getMissCount();
+            return total == 0 ? 0 : hits / (double) total;
+        });
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            entryLocks[i] = new ReentrantReadWriteLock();
+        }
         try {
             if (Files.notExists(storageDir)) {
                 Files.createDirectory(storageDir);
             }
         } catch (IOException e) {
             e.printStackTrace();
+            errors.increment();
         }
+        // Opening the journal replays every segment, so a snapshot open leaves it for later
+        this.store = store != null || !reconcileNow ? store : openConfiguredStore();
+        try {
+            loadMetadata();
+            if (reconcileNow) catchUp();
+        } catch (IOException e) {
+            e.printStackTrace();
+            errors.increment();
+        }
+    }
+
+    /**
+     * Opens the default diary from the metadata sidecar alone, without opening or listing
+     * the store, so the first screen can be shown straight away. Listings, lookups and
+     * searches answer from the snapshot; calls that need the store open it first. Call
+     * {@link #reconcile()} afterwards, typically on a background thread, to open the store
+     * and pick up changes made while the app was closed.
+     */
+    public static FileManager openFromSnapshot() {
+        return openFromSnapshot(DEFAULT_STORAGE_DIR);
+    }
+
+    public static FileManager openFromSnapshot(Path storageDir) {
+        return new FileManager(storageDir, null, false);
+    }
+
+    /** Writes an entry and returns its updated metadata. */
+    public EntryMetadata saveEntry(DiaryEntry entry) throws IOException {
+        return write(entry.getTitle(), entry.getContent(), entry.getTimestamp(),
+                () -> store().save(entry.getTitle(), entry.getContent()));
+    }
+
+    // Writes through to the store, then updates the cache and every index under the entry's lock
+    private EntryMetadata write(String title, String content, LocalDateTime createdIfNew,
+                                StoreAction<EntryMetadata> storeWrite) throws IOException {
+        // Measured before taking the lock; only the store write and index updates need it
+        HtmlTokenizer measured = measure(content);
+        long size = utf8Length(content);
+        return timed(saveTimer, () -> withEntryLock(title, true, () -> {
+            EntryMetadata metadata;
+            try {
+                metadata = storeWrite.run();
+            } catch (IOException e) {
+                contentCache.invalidate(title);
+                throw e;
+            }
+            contentCache.put(title, content);
+            metadata = track(metadata, measured, size, createdIfNew);
+            searchIndex.index(title, stamp(metadata), content);
+            try {
+                revisions.record(metadata.getId(), content, metadata.getLastModified());
+            } catch (IOException e) {
+                // The entry itself is saved; only its history is missing this version
+                e.printStackTrace();
+                errors.increment();
+            }
+            try {
+                // Edits appended since the last full save are part of this content now
+                editLog.delete(metadata.getId());
+            } catch (IOException e) {
+                // A leftover log names the old content, so it is never applied to this one
+                e.printStackTrace();
+                errors.increment();
+            }
+            return metadata;
+        }));
+    }
+
+    /**
+     * Saves an entry by appending the edits made since it was last saved, instead of
+     * writing it out in full, so the cost follows the size of the edits rather than of the
+     * entry. {@code lengthBefore} is the length of the text the edits apply to; if the
+     * entry does not have that length, because it was changed elsewhere, or an edit falls
+     * outside the text, nothing is written and this throws, and the caller should save
+     * the entry in full.
+     * <p>
+     * Reads of the entry include the edits straight away. Its metadata, search index
+     * entry, statistics and history catch up at the next full save, which also deletes
+     * the edits; edits still pending at startup are saved in full by {@link #reconcile()}.
+     */
+    public EntryMetadata appendEdits(String title, int lengthBefore, List<TextEdit> edits) throws IOException {
+        return timed(editTimer, () -> withEntryLock(title, true, () -> {
+            EntryMetadata metadata = requireEntry(title);
+            long id = metadata.getId();
+            // A log for older content means the entry changed on disk since it was started
+            if (editLog.hasPending(id) && editLog.baseStamp(id) != stamp(metadata)) editLog.delete(id);
+            boolean pending = editLog.hasPending(id);
+            int length = pending ? editLog.length(id) : storedLength(title);
+            if (length != lengthBefore) {
+                throw new IOException("\"" + title + "\" has changed since these edits were made");
+            }
+            if (!pending) editLog.begin(id, stamp(metadata), length);
+            try {
+                editLog.append(id, edits);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                throw new IOException("Edits do not apply to \"" + title + "\": " + e.getMessage(), e);
+            }
+            contentCache.invalidate(title);
+            return metadata;
+        }));
+    }
+
+    // Length in chars of the entry's saved content, usually known from the last save
+    private int storedLength(String title) throws IOException {
+        // Not a read of the entry, so it stays out of the cache hit ratio
+        String cached = contentCache.peek(title);
+        return cached != null ? cached.length() : store().read(title).length();
+    }
+
+    // Applies edits appended since the entry was last saved in full. A log written
+    // against other content is ignored.
+    private String withPendingEdits(String title, String saved) throws IOException {
+        EntryMetadata metadata = getEntryMetadata(title);
+        if (metadata == null || !editLog.hasPending(metadata.getId())) return saved;
+        String edited = editLog.replay(metadata.getId(), stamp(metadata), saved);
+        return edited != null ? edited : saved;
     }
 
-    public void saveEntry(DiaryEntry entry) throws IOException {
-        Path filePath = storageDir.resolve(entry.getTitle() + ".html");
-        Files.writeString(filePath, entry.getContent(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    /**
+     * Gives an entry a new title. The entry keeps its id, creation time and content;
+     * throws {@link FileAlreadyExistsException} if the new title is already taken.
+     */
+    public EntryMetadata renameEntry(String oldTitle, String newTitle) throws IOException {
+        if (oldTitle.equals(newTitle)) throw new FileAlreadyExistsException(newTitle);
+        // Both stripes, lowest first, so two renames in opposite directions cannot deadlock
+        int first = Math.min(stripe(oldTitle), stripe(newTitle));
+        int second = Math.max(stripe(oldTitle), stripe(newTitle));
+        return timed(renameTimer, () -> {
+            storeLock.readLock().lock();
+            entryLocks[first].writeLock().lock();
+            if (second != first) entryLocks[second].writeLock().lock();
+            try {
+                return renameLocked(oldTitle, newTitle);
+            } finally {
+                if (second != first) entryLocks[second].writeLock().unlock();
+                entryLocks[first].writeLock().unlock();
+                storeLock.readLock().unlock();
+            }
+        });
     }
 
-    public List<EntryMetadata> listEntriesMetadata() throws IOException {
-        try (Stream<Path> stream = Files.list(storageDir)) {
-            return stream
-                    .filter(path -> path.toString().endsWith(".html"))
-                    .map(path -> {
-                        String title = path.getFileName().toString().replace(".html", "");
-                        LocalDateTime modifiedTime = LocalDateTime.now();
-                        try {
-                            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
-                            modifiedTime = LocalDateTime.ofInstant(attrs.lastModifiedTime().toInstant(), ZoneId.systemDefault());
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                        return new EntryMetadata(title, modifiedTime);
-                    })
-                    .collect(Collectors.toList());
+    private EntryMetadata renameLocked(String oldTitle, String newTitle) throws IOException {
+        EntryMetadata known = getEntryMetadata(oldTitle);
+        if (known == null) throw new NoSuchFileException(oldTitle);
+        if (getEntryMetadata(newTitle) != null) throw new FileAlreadyExistsException(newTitle);
+
+        EntryMetadata stored = store().rename(oldTitle, newTitle);
+        String content = contentCache.get(oldTitle);
+        contentCache.invalidate(oldTitle);
+        if (content != null) contentCache.put(newTitle, content);
+
+        EntryMetadata metadata = new EntryMetadata(known.getId(), newTitle, known.getCreated(),
+                stored.getLastModified(), known.getSize(), known.getWordCount());
+        // The content is the same, so pending edits still apply to it
+        if (editLog.hasPending(known.getId()) && editLog.baseStamp(known.getId()) == stamp(known)) {
+            editLog.restamp(known.getId(), stamp(metadata));
+        }
+        synchronized (this) {
+            // One change, so no listing shows the entry under neither title
+            beginChange();
+            EntryStats previous = stats.get(oldTitle);
+            removeIndexEntry(oldTitle);
+            putIndexEntry(metadata, new EntryStats(newTitle, previous.getWordCount(), previous.getCharCount(),
+                    previous.getTextLength(), metadata.getCreated(), metadata.getLastModified()));
+            endChange();
         }
+        // Title words are indexed with the body, so the entry is indexed again under its new title
+        searchIndex.remove(oldTitle);
+        searchIndex.index(newTitle, stamp(metadata), store().readBytes(newTitle));
+        return metadata;
     }
-    
-    // Kept for backward compatibility if needed, but listEntriesMetadata is preferred
-    public List<String> listEntries() throws IOException {
-        try (Stream<Path> stream = Files.list(storageDir)) {
-            return stream
-                    .map(path -> path.getFileName().toString().replace(".html", ""))
-                    .collect(Collectors.toList());
+
+    /** Looks up a single entry in the metadata index, or returns null if there is none. */
+    public EntryMetadata getEntryMetadata(String title) {
+        return entriesByTitle.get(title);
+    }
+
+    /** Looks up an entry by its stable id, or returns null if there is none. */
+    public EntryMetadata getEntryById(long id) {
+        return entriesById.get(id);
+    }
+
+    /**
+     * Returns the current entries, newest first. The list is an immutable snapshot
+     * of the in-memory index, so this never touches the file system.
+     */
+    public List<EntryMetadata> listEntriesMetadata() {
+        long start = System.nanoTime();
+        List<EntryMetadata> entries = listing();
+        listTimer.record(System.nanoTime() - start);
+        return entries;
+    }
+
+    private List<EntryMetadata> listing() {
+        long current = version;
+        Listing published = listing;
+        if (published != null && published.version() == current) return published.entries();
+
+        // Copy without locking; if a write raced with the copy it may be inconsistent,
+        // so fall back to copying under the index lock
+        List<EntryMetadata> entries = List.copyOf(sortedEntries);
+        if ((current & 1) != 0 || version != current) {
+            synchronized (this) {
+                current = version;
+                entries = List.copyOf(sortedEntries);
+            }
         }
+        listing = new Listing(current, entries);
+        return entries;
+    }
+
+    /**
+     * Full-text search over titles and entry bodies, returning the 200 best matches, best
+     * first. A blank query returns every entry.
+     */
+    public List<EntryMetadata> search(String query) {
+        return search(query, SEARCH_LIMIT);
+    }
+
+    /** Like {@link #search(String)}, returning at most {@code limit} matches. */
+    public List<EntryMetadata> search(String query, int limit) {
+        if (query == null || query.isBlank()) return listEntriesMetadata();
+        long start = System.nanoTime();
+        try {
+            return searchIndexLoaded ? rankedSearch(query, limit) : titleSearch(query, limit);
+        } catch (RuntimeException e) {
+            searchTimer.recordError();
+            throw e;
+        } finally {
+            searchTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    private List<EntryMetadata> rankedSearch(String query, int limit) {
+        List<EntryMetadata> results = new ArrayList<>();
+        for (String title : searchIndex.search(query, limit)) {
+            EntryMetadata metadata = entriesByTitle.get(title);
+            if (metadata != null) results.add(metadata);
+        }
+        return results;
+    }
+
+    // Until the search index is loaded, every query term has to start a word of the title
+    private List<EntryMetadata> titleSearch(String query, int limit) {
+        List<String> terms = SearchIndex.extractTerms(query);
+        List<EntryMetadata> results = new ArrayList<>();
+        for (EntryMetadata metadata : listEntriesMetadata()) {
+            if (results.size() == limit) break;
+            List<String> words = SearchIndex.extractTerms(metadata.getTitle());
+            if (terms.stream().allMatch(term -> words.stream().anyMatch(word -> word.startsWith(term)))) {
+                results.add(metadata);
+            }
+        }
+        return results;
+    }
+
+    // Kept for backward compatibility if needed, but listEntriesMetadata is preferred
+    public List<String> listEntries() {
+        return listEntriesMetadata().stream()
+                .map(EntryMetadata::getTitle)
+                .toList();
     }
 
     public String readEntry(String title) throws IOException {
-        return Files.readString(storageDir.resolve(title + ".html"));
+        return timed(readTimer, () -> {
+            String cached = contentCache.get(title);
+            if (cached != null) return cached;
+            return withEntryLock(title, false, () -> {
+                String content = withPendingEdits(title, store().read(title));
+                contentCache.putIfAbsent(title, content);
+                return content;
+            });
+        });
+    }
+
+    /** Loads an entry into the content cache ahead of time, if it is not there already. */
+    public void prefetchEntry(String title) throws IOException {
+        if (contentCache.contains(title)) return;
+        withEntryLock(title, false, () -> {
+            contentCache.putIfAbsent(title, withPendingEdits(title, store().read(title)));
+            return null;
+        });
+    }
+
+    /**
+     * Returns an entry's raw UTF-8 bytes. Large entries are memory-mapped rather than
+     * copied onto the heap; wrap the result in a {@link ByteCharSequence} to scan it.
+     */
+    public ByteBuffer readEntryBytes(String title) throws IOException {
+        return timed(readTimer, () -> withEntryLock(title, false, () -> {
+            EntryMetadata metadata = getEntryMetadata(title);
+            if (metadata != null && editLog.hasPending(metadata.getId())) {
+                return ByteBuffer.wrap(withPendingEdits(title, store().read(title)).getBytes(StandardCharsets.UTF_8));
+            }
+            return store().readBytes(title);
+        }));
+    }
+
+    /** Receives each entry during {@link #forEachEntry}. */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(EntryMetadata metadata, ByteBuffer content) throws IOException;
+    }
+
+    /** Folds one entry into an accumulator during {@link #scanEntries}. */
+    @FunctionalInterface
+    public interface EntryFolder<A> {
+        void fold(A accumulator, EntryMetadata metadata, ByteBuffer content) throws IOException;
+    }
+
+    /**
+     * Streams every entry's bytes to the visitor, one at a time, for bulk consumers such
+     * as statistics, export and indexing. Entries that disappear mid-scan are skipped.
+     */
+    public void forEachEntry(EntryVisitor visitor) throws IOException {
+        for (EntryMetadata metadata : listEntriesMetadata()) {
+            ByteBuffer content;
+            try {
+                content = readEntryBytes(metadata.getTitle());
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            visitor.visit(metadata, content);
+        }
     }
 
     public void deleteEntry(String title) throws IOException {
-        Files.deleteIfExists(storageDir.resolve(title + ".html"));
+        timed(deleteTimer, () -> withEntryLock(title, true, () -> {
+            contentCache.invalidate(title);
+            store().delete(title);
+            EntryMetadata deleted = entriesByTitle.get(title);
+            if (deleted != null) {
+                revisions.delete(deleted.getId());
+                editLog.delete(deleted.getId());
+            }
+            removeIndexEntry(title);
+            searchIndex.remove(title);
+            return null;
+        }));
+    }
+
+    /**
+     * Lists the saved versions of an entry, newest first. Every save adds one unless the
+     * content did not change; older versions are thinned out to hourly, then daily, then
+     * weekly ones. History follows the entry through renames.
+     */
+    public List<Revision> listRevisions(String title) throws IOException {
+        return withEntryLock(title, false, () -> revisions.list(requireEntry(title).getId()));
+    }
+
+    /** Returns the content of one saved version of an entry. */
+    public String readRevision(String title, int revision) throws IOException {
+        return withEntryLock(title, false, () -> revisions.read(requireEntry(title).getId(), revision));
+    }
+
+    /**
+     * Makes an earlier version of an entry its current content. The restore is saved as a
+     * new version, so the content it replaces stays in the history.
+     */
+    public EntryMetadata restoreRevision(String title, int revision) throws IOException {
+        String content = readRevision(title, revision);
+        return saveEntry(new DiaryEntry(title, content));
+    }
+
+    private EntryMetadata requireEntry(String title) throws NoSuchFileException {
+        EntryMetadata metadata = entriesByTitle.get(title);
+        if (metadata == null) throw new NoSuchFileException(title);
+        return metadata;
+    }
+
+    /** Receives progress from the bulk operations, and can stop them early. */
+    public interface BulkListener {
+        BulkListener NONE = (done, total) -> { };
+
+        /** Called after each item, from whichever thread processed it. */
+        void progress(int done, int total);
+
+        /** Checked before each item; once it returns true no further items are started. */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the given entries, several at a time as tasks on {@code executor}. Entries
+     * that fail to delete are reported in the result; the others are still deleted.
+     */
+    public BulkResult deleteEntries(Collection<String> titles, Executor executor, BulkListener listener)
+            throws IOException {
+        BulkResult result = BulkRunner.forEach(List.copyOf(titles), title -> title,
+                BulkRunner.DEFAULT_PARALLELISM, executor, listener, this::deleteEntry);
+        saveMetadata();
+        return result;
+    }
+
+    /**
+     * Imports HTML ({@code .html}, {@code .htm}) and Markdown ({@code .md}, {@code .markdown})
+     * files from folders (searched recursively), zip archives or single files. Each file
+     * becomes an entry named after the file and dated by its modification time; a name
+     * that is already taken gets a number added, so nothing is overwritten. Files are read
+     * and saved as tasks on {@code executor}.
+     */
+    public BulkResult importEntries(List<Path> sources, Executor executor, BulkListener listener) throws IOException {
+        try (EntryImporter importer = new EntryImporter(sources)) {
+            List<EntryImporter.Item> items = importer.items();
+            // Titles are settled up front so parallel imports cannot pick the same one
+            Map<EntryImporter.Item, String> titles = new HashMap<>();
+            Set<String> taken = new HashSet<>();
+            for (EntryImporter.Item item : items) {
+                String base = item.title().isEmpty() ? "Imported entry" : item.title();
+                String title = base;
+                for (int n = 2; getEntryMetadata(title) != null || !taken.add(title); n++) {
+                    title = base + " (" + n + ")";
+                }
+                titles.put(item, title);
+            }
+            BulkResult result = BulkRunner.forEach(items, EntryImporter.Item::name, BulkRunner.DEFAULT_PARALLELISM,
+                    executor, listener, item -> {
+                        String title = titles.get(item);
+                        String content = importer.read(item);
+                        write(title, content, item.modified(), () -> store().importEntry(title, content, item.modified()));
+                    });
+            saveMetadata();
+            return result;
+        }
+    }
+
+    /**
+     * Writes the given entries to {@code target} in the given format. Content is streamed
+     * from the store to the target a few entries at a time, so exporting the whole diary
+     * does not load it into memory. Entries are written in the order given, and read as
+     * tasks on {@code executor}.
+     */
+    public BulkResult exportEntries(List<EntryMetadata> entries, Path target, ExportFormat format,
+                                    Executor executor, BulkListener listener) throws IOException {
+        return EntryExporter.export(this, entries, target, format, executor, listener);
     }
 
     public void clearAllEntries() throws IOException {
-        try (Stream<Path> stream = Files.list(storageDir)) {
-            stream.forEach(path -> {
+        storeLock.writeLock().lock();
+        try {
+            contentCache.clear();
+            try {
+                store().clear();
+            } finally {
+                synchronized (this) {
+                    beginChange();
+                    for (String title : new ArrayList<>(entriesByTitle.keySet())) {
+                        removeIndexEntry(title);
+                    }
+                    endChange();
+                }
+                searchIndex.clear();
+                revisions.clear();
+                editLog.clear();
+                // Picks up anything the store failed to delete. Sequentially: pool workers
+                // would wait forever for the store lock this thread holds exclusively.
+                reloadIndex(1);
+                saveMetadata();
+            }
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-reads one entry from the store after it changed outside this FileManager and
+     * updates every index. Returns false if the indexes were already up to date.
+     */
+    public boolean refreshEntry(String title) throws IOException {
+        return withEntryLock(title, true, () -> refreshLocked(title));
+    }
+
+    private boolean refreshLocked(String title) throws IOException {
+        EntryMetadata current = store().stat(title);
+        EntryMetadata known = getEntryMetadata(title);
+        if (current == null) {
+            if (known == null) return false;
+            contentCache.invalidate(title);
+            removeIndexEntry(title);
+            searchIndex.remove(title);
+            return true;
+        }
+        if (known != null && known.getLastModified().equals(current.getLastModified())) {
+            return false;
+        }
+        contentCache.invalidate(title);
+        ByteBuffer content = store().readBytes(title);
+        EntryMetadata metadata = track(current, measure(content), content.remaining(), current.getLastModified());
+        searchIndex.index(title, stamp(metadata), content);
+        return true;
+    }
+
+    /**
+     * Full rescan of the store, bringing every index up to date. After
+     * {@link #openFromSnapshot()} this is also what opens the store.
+     */
+    public void reconcile() throws IOException {
+        contentCache.clear();
+        catchUp();
+    }
+
+    /**
+     * Starts watching the entry directory for outside changes, if the store is the
+     * one-file-per-entry layout. Returns null for stores that cannot be watched.
+     */
+    public Closeable startWatching(Consumer<Set<String>> onChange) throws IOException {
+        if (!(store() instanceof DirectoryEntryStore directoryStore)) return null;
+        EntryWatcher watcher = new EntryWatcher(directoryStore.getStorageDir(), this, onChange, 200, errors);
+        watcher.start();
+        return watcher;
+    }
+
+    /** Entries bucketed by month and day, for the calendar view. */
+    public CalendarIndex getCalendar() {
+        return calendar;
+    }
+
+    /** Recently read entry content, with hit, miss and eviction counters. */
+    public ContentCache getContentCache() {
+        return contentCache;
+    }
+
+    /** Timings and counts for every storage call and search, for the performance panel. */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /** Running totals over all entries; reading them never touches the store. */
+    public StatsAggregator getStatistics() {
+        return stats;
+    }
+
+    /** Persists the metadata and search index and closes the store. Call once when the application shuts down. */
+    public void close() throws IOException {
+        try {
+            searchIndex.save();
+            saveMetadata();
+        } finally {
+            EntryStore opened = store;
+            if (opened != null) opened.close();
+        }
+    }
+
+    /**
+     * Brings the metadata index and search index in line with a full listing of the store.
+     * Entries whose modification time matches the metadata sidecar are not read; new and
+     * changed entries are read once to measure and index them. Only needed when the storage
+     * may have been changed behind our back.
+     */
+    public void reloadIndex() throws IOException {
+        reloadIndex(CorpusScanner.DEFAULT_PARALLELISM);
+    }
+
+    private void reloadIndex(int parallelism) throws IOException {
+        List<EntryMetadata> scanned = store().list();
+        Set<String> titles = new HashSet<>();
+        List<EntryMetadata> changed = new ArrayList<>();
+        for (EntryMetadata current : scanned) {
+            String title = current.getTitle();
+            titles.add(title);
+            EntryMetadata known = getEntryMetadata(title);
+            boolean metadataCurrent = known != null && known.getLastModified().equals(current.getLastModified());
+            boolean searchCurrent = metadataCurrent && searchIndex.isCurrent(title, stamp(known));
+            if (!metadataCurrent || !searchCurrent) changed.add(current);
+        }
+        // A first start over an existing diary reads every entry, so that is done in parallel
+        Set<String> vanished = CorpusScanner.scan(changed, parallelism, HashSet::new,
+                (gone, current) -> {
+                    try {
+                        if (!reindex(current)) gone.add(current.getTitle());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        errors.increment();
+                    }
+                },
+                (a, b) -> {
+                    a.addAll(b);
+                    return a;
+                }, BulkListener.NONE);
+        titles.removeAll(vanished);
+        List<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String title : entriesByTitle.keySet()) {
+                if (!titles.contains(title)) missing.add(title);
+            }
+        }
+        for (String title : missing) {
+            // Entries saved since the listing was taken are not in it, but are not gone either
+            boolean gone = withEntryLock(title, true, () -> {
+                if (store().stat(title) != null) return false;
+                removeIndexEntry(title);
+                return true;
+            });
+            if (!gone) titles.add(title);
+        }
+        searchIndex.retainOnly(titles);
+    }
+
+    /**
+     * Re-reads every entry and rebuilds its metadata, statistics and search index entry
+     * from the content, on all cores. Use it when the indexes are suspect, for example
+     * after the sidecar files were lost or edited by hand. Entries saved while the
+     * rebuild runs keep their newer figures.
+     */
+    public BulkResult rebuildIndexes(BulkListener listener) throws IOException {
+        return rebuildIndexes(CorpusScanner.DEFAULT_PARALLELISM, listener);
+    }
+
+    /** {@link #rebuildIndexes(BulkListener)} with the given number of worker threads. */
+    public BulkResult rebuildIndexes(int parallelism, BulkListener listener) throws IOException {
+        List<EntryMetadata> entries = listEntriesMetadata();
+        Rebuild rebuilt;
+        try {
+            rebuilt = CorpusScanner.scan(entries, parallelism, Rebuild::new, (rebuild, listed) -> {
+                String title = listed.getTitle();
                 try {
-                    Files.delete(path);
+                    withEntryLock(title, true, () -> {
+                        ByteBuffer content = store().readBytes(title);
+                        EntryMetadata known = getEntryMetadata(title);
+                        EntryMetadata stored = known != null ? known : listed;
+                        EntryMetadata metadata = track(stored, measure(content), content.remaining(),
+                                stored.getLastModified());
+                        rebuild.index().add(title, stamp(metadata), content);
+                        return null;
+                    });
+                } catch (NoSuchFileException e) {
+                    // Deleted since the listing was taken
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    rebuild.failures().put(title, e);
                 }
+            }, Rebuild::merge, listener);
+        } finally {
+            saveMetadata();
+        }
+        searchIndex.replaceWith(rebuilt.index());
+
+        // Saves and deletes that landed while the scan ran went to the index just replaced
+        Set<String> titles = new HashSet<>();
+        for (EntryMetadata metadata : listEntriesMetadata()) {
+            titles.add(metadata.getTitle());
+            if (!searchIndex.isCurrent(metadata.getTitle(), stamp(metadata))) reindex(metadata);
+        }
+        searchIndex.retainOnly(titles);
+        Map<String, Exception> failures = rebuilt.failures();
+        return new BulkResult(entries.size(), entries.size() - failures.size(), failures, false);
+    }
+
+    // One partition's share of a rebuild
+    private record Rebuild(SearchIndex.Builder index, Map<String, Exception> failures) {
+        Rebuild() {
+            this(new SearchIndex.Builder(), new HashMap<>());
+        }
+
+        Rebuild merge(Rebuild other) {
+            failures.putAll(other.failures);
+            return new Rebuild(index.merge(other.index), failures);
+        }
+    }
+
+    /**
+     * Parallel version of {@link #forEachEntry}: folds every entry into one accumulator per
+     * partition of the diary, then merges them. The folder runs on several threads at once
+     * but never sees the same accumulator from two of them. Entries that disappear
+     * mid-scan are skipped.
+     */
+    public <A> A scanEntries(Supplier<A> newAccumulator, EntryFolder<A> folder, BinaryOperator<A> merge,
+                             BulkListener listener) throws IOException {
+        return scanEntries(CorpusScanner.DEFAULT_PARALLELISM, newAccumulator, folder, merge, listener);
+    }
+
+    /** {@link #scanEntries(Supplier, EntryFolder, BinaryOperator, BulkListener)} with the given number of threads. */
+    public <A> A scanEntries(int parallelism, Supplier<A> newAccumulator, EntryFolder<A> folder,
+                             BinaryOperator<A> merge, BulkListener listener) throws IOException {
+        return CorpusScanner.scan(listEntriesMetadata(), parallelism, newAccumulator,
+                (accumulator, metadata) -> {
+                    ByteBuffer content;
+                    try {
+                        content = readEntryBytes(metadata.getTitle());
+                    } catch (NoSuchFileException e) {
+                        return;
+                    }
+                    folder.fold(accumulator, metadata, content);
+                }, merge, listener);
+    }
+
+    // Reads an entry as the store listed it and indexes it again, measuring it only if its
+    // metadata is out of date. Returns false if the entry no longer exists.
+    private boolean reindex(EntryMetadata current) throws IOException {
+        String title = current.getTitle();
+        try {
+            return withEntryLock(title, true, () -> {
+                ByteBuffer content = store().readBytes(title);
+                EntryMetadata known = getEntryMetadata(title);
+                EntryMetadata metadata = known != null && known.getLastModified().equals(current.getLastModified())
+                        ? known
+                        : track(current, measure(content), content.remaining(), current.getLastModified());
+                searchIndex.index(title, stamp(metadata), content);
+                return true;
             });
+        } catch (NoSuchFileException e) {
+            return false;
         }
     }
-}
\ No newline at end of file
+
+    private void catchUp() throws IOException {
+        if (!searchIndexLoaded) {
+            // Until this has run, searches only match titles
+            try {
+                searchIndex.load();
+            } catch (IOException e) {
+                // The damaged index was dropped; the reload below indexes every entry again
+                e.printStackTrace();
+                errors.increment();
+            }
+            searchIndexLoaded = true;
+        }
+        reloadIndex();
+        consolidateEdits();
+        // Statistics used to be kept in their own file; the metadata sidecar replaces it
+        Files.deleteIfExists(storageDir.resolve(".entry-stats"));
+        saveMetadata();
+    }
+
+    // Saves in full every entry whose edits were never consolidated, e.g. after a crash
+    private void consolidateEdits() throws IOException {
+        for (long id : editLog.pendingIds()) {
+            EntryMetadata metadata = getEntryById(id);
+            try {
+                if (metadata != null) {
+                    saveEntry(new DiaryEntry(metadata.getTitle(), readEntry(metadata.getTitle())));
+                } else {
+                    editLog.delete(id);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                errors.increment();
+            }
+        }
+    }
+
+    // Fills the metadata index and statistics from the sidecar, without touching the store
+    private void loadMetadata() throws IOException {
+        MetadataStore.Contents contents = metadataStore.load();
+        synchronized (this) {
+            nextId = contents.nextId();
+            for (MetadataStore.Row row : contents.rows()) {
+                putIndexEntry(row.metadata(), row.stats());
+                nextId = Math.max(nextId, row.metadata().getId() + 1);
+            }
+            metadataDirty = false;
+        }
+    }
+
+    private void saveMetadata() throws IOException {
+        List<MetadataStore.Row> rows;
+        long next;
+        synchronized (this) {
+            if (!metadataDirty) return;
+            rows = new ArrayList<>(entriesByTitle.size());
+            for (EntryMetadata metadata : entriesByTitle.values()) {
+                rows.add(new MetadataStore.Row(metadata, stats.get(metadata.getTitle())));
+            }
+            next = nextId;
+            metadataDirty = false;
+        }
+        metadataStore.save(next, rows);
+    }
+
+    // Records what the store reported together with freshly measured figures. A known
+    // entry keeps its id and creation time; a new one gets the next id.
+    private synchronized EntryMetadata track(EntryMetadata stored, HtmlTokenizer measured, long size,
+                                             LocalDateTime createdIfNew) {
+        String title = stored.getTitle();
+        EntryMetadata known = entriesByTitle.get(title);
+        // A reconcile that read the entry just before a save must not roll it back
+        if (known != null && known.getLastModified().isAfter(stored.getLastModified())) return known;
+        long id = known != null ? known.getId() : nextId++;
+        LocalDateTime created = known != null ? known.getCreated() : createdIfNew;
+        EntryMetadata metadata = new EntryMetadata(id, title, created, stored.getLastModified(),
+                size, measured.getTokenCount());
+        putIndexEntry(metadata, EntryStats.of(title, measured, created, stored.getLastModified()));
+        return metadata;
+    }
+
+    // Records how long a call took, and counts it as failed if it threw
+    private <T> T timed(Metrics.Timer timer, StoreAction<T> action) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return action.run();
+        } catch (IOException | RuntimeException e) {
+            timer.recordError();
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    private <T> T withEntryLock(String title, boolean exclusive, StoreAction<T> action) throws IOException {
+        ReadWriteLock entryLock = entryLocks[stripe(title)];
+        Lock lock = exclusive ? entryLock.writeLock() : entryLock.readLock();
+        storeLock.readLock().lock();
+        lock.lock();
+        try {
+            return action.run();
+        } finally {
+            lock.unlock();
+            storeLock.readLock().unlock();
+        }
+    }
+
+    private static int stripe(String title) {
+        int hash = title.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private static HtmlTokenizer measure(CharSequence html) {
+        HtmlTokenizer tokenizer = new HtmlTokenizer();
+        tokenizer.countWords(html);
+        return tokenizer;
+    }
+
+    private static HtmlTokenizer measure(ByteBuffer html) {
+        HtmlTokenizer tokenizer = new HtmlTokenizer();
+        tokenizer.tokenize(html, (buffer, length) -> { });
+        return tokenizer;
+    }
+
+    private static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // The store, opened on first use by whichever thread needs it first
+    private EntryStore store() {
+        EntryStore opened = store;
+        if (opened != null) return opened;
+        synchronized (storeOpenLock) {
+            if (store == null) store = openConfiguredStore();
+            return store;
+        }
+    }
+
+    // The store picked by diary.store, or the directory store if that cannot be opened
+    private EntryStore openConfiguredStore() {
+        try {
+            return openStore(System.getProperty("diary.store", "directory"));
+        } catch (IOException e) {
+            e.printStackTrace();
+            errors.increment();
+            return new DirectoryEntryStore(storageDir, EntryCodec.PLAIN, errors);
+        }
+    }
+
+    private EntryStore openStore(String type) throws IOException {
+        EntryCodec codec = EntryCodec.fromProperty();
+        if (!"journal".equals(type)) {
+            return new DirectoryEntryStore(storageDir, codec, errors);
+        }
+        Path journalDir = storageDir.resolve("journal");
+        Path migratedMarker = journalDir.resolve(".migrated");
+        JournalEntryStore journal = new JournalEntryStore(journalDir, codec);
+        if (Files.notExists(migratedMarker)) {
+            // One-shot import of the per-file layout; the HTML files are left in place
+            DirectoryEntryStore files = new DirectoryEntryStore(storageDir, EntryCodec.PLAIN, errors);
+            int migrated = EntryStoreMigrator.migrate(files, journal);
+            Files.writeString(migratedMarker, migrated + " entries migrated\n");
+        }
+        return journal;
+    }
+
+    private static long stamp(EntryMetadata metadata) {
+        return metadata.getLastModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private synchronized void putIndexEntry(EntryMetadata metadata, EntryStats entryStats) {
+        beginChange();
+        EntryMetadata previous = entriesByTitle.put(metadata.getTitle(), metadata);
+        if (previous != null) {
+            sortedEntries.remove(previous);
+        }
+        sortedEntries.add(metadata);
+        entriesById.put(metadata.getId(), metadata);
+        calendar.put(metadata);
+        stats.put(entryStats);
+        metadataDirty = true;
+        endChange();
+    }
+
+    private synchronized void removeIndexEntry(String title) {
+        EntryMetadata previous = entriesByTitle.get(title);
+        if (previous != null) {
+            beginChange();
+            entriesByTitle.remove(title);
+            sortedEntries.remove(previous);
+            entriesById.remove(previous.getId());
+            calendar.remove(title);
+            stats.remove(title);
+            metadataDirty = true;
+            endChange();
+        }
+    }
+
+    // Guarded by "this"; nested changes count as one
+    private void beginChange() {
+        if (changeDepth++ == 0) version++;
+    }
+
+    private void endChange() {
+        if (--changeDepth == 0) version++;
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Single-pass tokenizer that pulls words out of entry HTML. It skips tags, comments and
+ * the bodies of {@code <script>} and {@code <style>}, decodes character entities, and
+ * reads either a {@link CharSequence} or a UTF-8 {@link ByteBuffer} directly.
+ * <p>
+ * A token is a run of letters and digits; an apostrophe or hyphen between two letters
+ * stays inside the token ("don't", "well-being"). Tokens are handed to the sink in a
+ * shared buffer that is only valid for the duration of the call, so tokenizing does not
+ * allocate per token. Instances are reusable but not thread-safe.
+ */
+public final class HtmlTokenizer {
+    /** Longer tokens are still counted, but only this many chars are passed to the sink. */
+    public static final int MAX_TOKEN_LENGTH = 64;
+
+    @FunctionalInterface
+    public interface TokenSink {
+        void token(char[] buffer, int length);
+    }
+
+    private static final TokenSink NO_SINK = (buffer, length) -> { };
+    private static final char[] SCRIPT = "script".toCharArray();
+    private static final char[] STYLE = "style".toCharArray();
+    private static final int MAX_TAG_NAME = 8;
+    private static final int MAX_ENTITY = 10;
+    // The named entities WebKit and typical pasted text actually produce
+    private static final String[] ENTITY_NAMES = {
+            "amp", "lt", "gt", "quot", "apos", "nbsp", "rsquo", "lsquo", "ldquo", "rdquo",
+            "mdash", "ndash", "hellip", "copy", "reg", "eacute", "egrave", "ecirc", "agrave",
+            "aacute", "acirc", "ccedil", "iacute", "oacute", "uacute", "ntilde", "auml", "ouml",
+            "uuml", "szlig"
+    };
+    private static final int[] ENTITY_VALUES = {
+            '&', '<', '>', '"', '\'', ' ', 0x2019, 0x2018, 0x201C, 0x201D,
+            0x2014, 0x2013, 0x2026, 0xA9, 0xAE, 0xE9, 0xE8, 0xEA, 0xE0,
+            0xE1, 0xE2, 0xE7, 0xED, 0xF3, 0xFA, 0xF1, 0xE4, 0xF6,
+            0xFC, 0xDF
+    };
+
+    private enum State { TEXT, TAG_OPEN, TAG_NAME, TAG, BANG, COMMENT, RAW, ENTITY }
+
+    private final boolean lowerCase;
+    private final char[] token = new char[MAX_TOKEN_LENGTH + 1];
+    private final char[] tagName = new char[MAX_TAG_NAME];
+    private final char[] entity = new char[MAX_ENTITY];
+
+    private TokenSink sink;
+    private State state;
+    private int tokenLength;
+    private boolean inToken;
+    private int pendingJoiner;
+    private int tagNameLength;
+    private boolean closingTag;
+    private char quote;
+    private int dashes;
+    private char[] rawEnd;
+    private int rawMatched;
+    private int entityLength;
+
+    private int tokenCount;
+    private int textLength;
+    private int inputLength;
+
+    public HtmlTokenizer() {
+        this(false);
+    }
+
+    /** @param lowerCase whether to lower-case tokens before handing them to the sink */
+    public HtmlTokenizer(boolean lowerCase) {
+        this.lowerCase = lowerCase;
+    }
+
+    /** Tokenizes HTML and returns the number of tokens. */
+    public int tokenize(CharSequence html, TokenSink sink) {
+        reset(sink);
+        for (int i = 0; i < html.length(); ) {
+            int codePoint = Character.codePointAt(html, i);
+            i += Character.charCount(codePoint);
+            accept(codePoint);
+        }
+        return finish();
+    }
+
+    /** Tokenizes UTF-8 encoded HTML between the buffer's position and limit, leaving the buffer untouched. */
+    public int tokenize(ByteBuffer utf8Html, TokenSink sink) {
+        reset(sink);
+        int limit = utf8Html.limit();
+        for (int i = utf8Html.position(); i < limit; ) {
+            int b0 = utf8Html.get(i) & 0xFF;
+            int codePoint;
+            int size;
+            if (b0 < 0x80) {
+                codePoint = b0;
+                size = 1;
+            } else if (b0 >= 0xC0 && b0 < 0xE0 && i + 1 < limit) {
+                codePoint = (b0 & 0x1F) << 6 | (utf8Html.get(i + 1) & 0x3F);
+                size = 2;
+            } else if (b0 >= 0xE0 && b0 < 0xF0 && i + 2 < limit) {
+                codePoint = (b0 & 0x0F) << 12 | (utf8Html.get(i + 1) & 0x3F) << 6 | (utf8Html.get(i + 2) & 0x3F);
+                size = 3;
+            } else if (b0 >= 0xF0 && b0 < 0xF8 && i + 3 < limit) {
+                codePoint = (b0 & 0x07) << 18 | (utf8Html.get(i + 1) & 0x3F) << 12
+                        | (utf8Html.get(i + 2) & 0x3F) << 6 | (utf8Html.get(i + 3) & 0x3F);
+                size = 4;
+            } else {
+                codePoint = 0xFFFD;
+                size = 1;
+            }
+            i += size;
+            accept(Character.isValidCodePoint(codePoint) ? codePoint : 0xFFFD);
+        }
+        return finish();
+    }
+
+    /** Tokenizes plain text such as a search query, with no tag or entity handling. */
+    public int tokenizeText(CharSequence text, TokenSink sink) {
+        reset(sink);
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            inputLength++;
+            text(codePoint);
+        }
+        return finish();
+    }
+
+    /** Counts the words in an entry's HTML. */
+    public int countWords(CharSequence html) {
+        return tokenize(html, NO_SINK);
+    }
+
+    /** Tokens found by the last call. */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /** Code points of visible text (tags removed, entities decoded) seen by the last call. */
+    public int getTextLength() {
+        return textLength;
+    }
+
+    /** Code points of input read by the last call. */
+    public int getInputLength() {
+        return inputLength;
+    }
+
+    private void reset(TokenSink sink) {
+        this.sink = sink;
+        state = State.TEXT;
+        tokenLength = 0;
+        inToken = false;
+        pendingJoiner = 0;
+        tokenCount = 0;
+        textLength = 0;
+        inputLength = 0;
+    }
+
+    private int finish() {
+        switch (state) {
+            case TAG_OPEN -> text('<');
+            case ENTITY -> flushFailedEntity();
+            default -> { }
+        }
+        endToken();
+        sink = null;
+        return tokenCount;
+    }
+
+    private void accept(int c) {
+        inputLength++;
+        switch (state) {
+            case TEXT -> {
+                if (c == '<') {
+                    endToken();
+                    state = State.TAG_OPEN;
+                    tagNameLength = 0;
+                    closingTag = false;
+                } else if (c == '&') {
+                    state = State.ENTITY;
+                    entityLength = 0;
+                } else {
+                    text(c);
+                }
+            }
+            case TAG_OPEN -> {
+                if (c == '/' && !closingTag) {
+                    closingTag = true;
+                } else if (c == '!' && !closingTag) {
+                    state = State.BANG;
+                    dashes = 0;
+                } else if (isAsciiLetter(c)) {
+                    state = State.TAG_NAME;
+                    appendTagName(c);
+                } else {
+                    // A stray '<' in text, not a tag
+                    state = State.TEXT;
+                    text('<');
+                    if (closingTag) text('/');
+                    accept(c);
+                    inputLength--;
+                }
+            }
+            case TAG_NAME -> {
+                if (isAsciiLetter(c) || (c >= '0' && c <= '9')) {
+                    appendTagName(c);
+                } else {
+                    state = State.TAG;
+                    quote = 0;
+                    tagBody(c);
+                }
+            }
+            case TAG -> tagBody(c);
+            case BANG -> {
+                if (c == '-' && ++dashes == 2) {
+                    state = State.COMMENT;
+                    dashes = 0;
+                } else if (c != '-') {
+                    // <!DOCTYPE ...> or similar
+                    state = State.TAG;
+                    quote = 0;
+                    closingTag = true;
+                    tagBody(c);
+                }
+            }
+            case COMMENT -> {
+                if (c == '>' && dashes >= 2) {
+                    state = State.TEXT;
+                }
+                dashes = c == '-' ? dashes + 1 : 0;
+            }
+            case RAW -> {
+                if (rawMatched < 2 ? c == "</".charAt(rawMatched) : Character.toLowerCase(c) == rawEnd[rawMatched - 2]) {
+                    rawMatched++;
+                    if (rawMatched == rawEnd.length + 2) {
+                        state = State.TAG;
+                        quote = 0;
+                        closingTag = true;
+                    }
+                } else {
+                    rawMatched = c == '<' ? 1 : 0;
+                }
+            }
+            case ENTITY -> {
+                if (c == ';') {
+                    state = State.TEXT;
+                    int decoded = decodeEntity();
+                    if (decoded >= 0) {
+                        text(decoded);
+                    } else {
+                        text(' ');
+                    }
+                } else if (entityLength < MAX_ENTITY && (isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '#')) {
+                    entity[entityLength++] = (char) c;
+                } else {
+                    state = State.TEXT;
+                    flushFailedEntity();
+                    accept(c);
+                    inputLength--;
+                }
+            }
+        }
+    }
+
+    private void tagBody(int c) {
+        if (quote != 0) {
+            if (c == quote) quote = 0;
+        } else if (c == '"' || c == '\'') {
+            quote = (char) c;
+        } else if (c == '>') {
+            if (!closingTag && (tagNameIs(SCRIPT) || tagNameIs(STYLE))) {
+                state = State.RAW;
+                rawEnd = tagNameIs(SCRIPT) ? SCRIPT : STYLE;
+                rawMatched = 0;
+            } else {
+                state = State.TEXT;
+            }
+        }
+    }
+
+    private void text(int c) {
+        textLength++;
+        if (Character.isLetterOrDigit(c)) {
+            if (pendingJoiner != 0) {
+                append(pendingJoiner);
+                pendingJoiner = 0;
+            }
+            append(lowerCase ? Character.toLowerCase(c) : c);
+            inToken = true;
+        } else if (inToken && pendingJoiner == 0 && (c == '\'' || c == '\u2019' || c == '-')) {
+            pendingJoiner = c;
+        } else {
+            endToken();
+        }
+    }
+
+    private void append(int c) {
+        if (tokenLength + Character.charCount(c) <= MAX_TOKEN_LENGTH) {
+            tokenLength += Character.toChars(c, token, tokenLength);
+        }
+    }
+
+    private void endToken() {
+        if (inToken) {
+            tokenCount++;
+            sink.token(token, tokenLength);
+        }
+        inToken = false;
+        tokenLength = 0;
+        pendingJoiner = 0;
+    }
+
+    private void flushFailedEntity() {
+        text('&');
+        for (int i = 0; i < entityLength; i++) {
+            text(entity[i]);
+        }
+    }
+
+    // Returns the decoded code point, or -1 for entities we do not know
+    private int decodeEntity() {
+        if (entityLength > 1 && entity[0] == '#') {
+            boolean hex = entity[1] == 'x' || entity[1] == 'X';
+            int value = 0;
+            for (int i = hex ? 2 : 1; i < entityLength; i++) {
+                int digit = Character.digit(entity[i], hex ? 16 : 10);
+                if (digit < 0 || value > 0x10FFFF) return -1;
+                value = value * (hex ? 16 : 10) + digit;
+            }
+            return Character.isValidCodePoint(value) ? value : -1;
+        }
+        for (int i = 0; i < ENTITY_NAMES.length; i++) {
+            if (entityIs(ENTITY_NAMES[i])) return ENTITY_VALUES[i];
+        }
+        return -1;
+    }
+
+    private boolean entityIs(String name) {
+        if (name.length() != entityLength) return false;
+        for (int i = 0; i < entityLength; i++) {
+            if (entity[i] != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private void appendTagName(int c) {
+        if (tagNameLength < MAX_TAG_NAME) {
+            tagName[tagNameLength++] = (char) Character.toLowerCase(c);
+        } else {
+            // Longer than any tag we care about
+            tagNameLength = MAX_TAG_NAME;
+        }
+    }
+
+    private boolean tagNameIs(char[] name) {
+        if (tagNameLength != name.length) return false;
+        for (int i = 0; i < tagNameLength; i++) {
+            if (tagName[i] != name[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the app's blocking storage calls, each on its own virtual thread. Threads are
+ * free, so what is bounded is how many calls hit each {@link Resource} at once: a task
+ * takes one of its resource's permits before it runs and waits on a virtual thread,
+ * not in a queue, until one is free.
+ * <p>
+ * Tasks submitted through a {@link Scope} can be cancelled together, e.g. everything
+ * started for the entry in the editor once the user moves on. A task still waiting for
+ * a permit is dropped. A running task is only marked cancelled, never interrupted: an
+ * interrupt in the middle of a channel read closes the channel, and the journal keeps
+ * its segments open for the life of the app. {@link javafx.concurrent.Task}s see the
+ * cancellation through {@code isCancelled()} and their results are discarded.
+ */
+final class IoScheduler implements AutoCloseable {
+
+    /** What a task mostly waits on. Permits can be overridden with the given property. */
+    enum Resource {
+        /** Entry reads and writes, revisions, deletes and the directory watcher. */
+        STORAGE("diary.io.storage", 8),
+        /** Searches and index rebuilds, which are mostly CPU. */
+        INDEX("diary.io.index", Math.max(2, Runtime.getRuntime().availableProcessors())),
+        /** Bulk import, export and delete, and metrics files. */
+        EXPORT("diary.io.export", 2);
+
+        private final int permits;
+
+        Resource(String property, int defaultPermits) {
+            this.permits = Math.max(1, Integer.getInteger(property, defaultPermits));
+        }
+
+        int getPermits() {
+            return permits;
+        }
+
+        private String metricName() {
+            return "io_" + name().toLowerCase();
+        }
+    }
+
+    private static final int WAITING = 0;
+    private static final int RUNNING = 1;
+    private static final int CANCELLED = 2;
+
+    private final ExecutorService threads =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("diary-io-", 0).factory());
+    private final Map<Resource, Lane> lanes = new EnumMap<>(Resource.class);
+    private final Scope root = new Scope();
+
+    private final AtomicInteger liveThreads = new AtomicInteger();
+    private final AtomicInteger peakThreads = new AtomicInteger();
+    private final Metrics.Counter started;
+    private final Metrics.Counter cancelled;
+    private final Metrics.Counter errors;
+
+    // Per-resource permits and metrics
+    private record Lane(Semaphore permits, AtomicInteger waiting, AtomicInteger active,
+                        Metrics.Timer waitTimer, Metrics.Timer runTimer) {}
+
+    IoScheduler(Metrics metrics) {
+        for (Resource resource : Resource.values()) {
+            String name = resource.metricName();
+            String label = resource.name().toLowerCase();
+            Lane lane = new Lane(new Semaphore(resource.getPermits(), true), new AtomicInteger(), new AtomicInteger(),
+                    metrics.timer(name + "_wait", "Time " + label + " tasks waited for a permit."),
+                    metrics.timer(name + "_run", "Time " + label + " tasks ran for."));
+            lanes.put(resource, lane);
+            metrics.gauge(name + "_waiting", "The " + label + " tasks waiting for a permit.", () -> lane.waiting().get());
+            metrics.gauge(name + "_active", "The " + label + " tasks running.", () -> lane.active().get());
+            metrics.gauge(name + "_permits", "How many " + label + " tasks may run at once.", resource::getPermits);
+        }
+        metrics.gauge("io_threads", "Virtual threads running or waiting for a permit.", liveThreads::get);
+        metrics.gauge("io_threads_peak", "Most virtual threads alive at once.", peakThreads::get);
+        started = metrics.counter("io_tasks", "Tasks submitted to the I/O scheduler.");
+        cancelled = metrics.counter("io_cancelled", "Tasks cancelled before they finished.");
+        errors = metrics.counter("errors", "Errors that were logged rather than thrown.");
+    }
+
+    /** Opens a group of tasks that can be cancelled together. */
+    Scope openScope() {
+        return new Scope();
+    }
+
+    /** Runs tasks for this resource outside any scope, so they are never cancelled with one. */
+    Executor executor(Resource resource) {
+        return root.executor(resource);
+    }
+
+    /**
+     * Returns an executor that runs its tasks one at a time, in the order they were
+     * submitted, on this resource. The tasks that queue up while one runs are drained
+     * by the same thread under one permit.
+     */
+    Executor serial(Resource resource) {
+        return new SerialLane(executor(resource));
+    }
+
+    /** Virtual threads that are running a task or waiting for a permit. */
+    int getLiveThreads() {
+        return liveThreads.get();
+    }
+
+    int getPeakThreads() {
+        return peakThreads.get();
+    }
+
+    /** Stops taking tasks and waits briefly for running and queued ones to finish. */
+    @Override
+    public void close() {
+        threads.shutdown();
+        try {
+            threads.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Tasks that belong together, such as the reads for the entry in the editor. */
+    final class Scope {
+        private final Set<Job> jobs = ConcurrentHashMap.newKeySet();
+
+        private Scope() {
+        }
+
+        /** Runs tasks for this resource as part of this scope. */
+        Executor executor(Resource resource) {
+            return task -> submit(resource, task);
+        }
+
+        /**
+         * Cancels every task of this scope that has not finished. The scope stays open,
+         * so it can be used again for the next entry.
+         */
+        void cancelAll() {
+            for (Job job : jobs) {
+                job.cancel();
+            }
+        }
+
+        private void submit(Resource resource, Runnable task) {
+            Job job = new Job(this, lanes.get(resource), task);
+            jobs.add(job);
+            started.increment();
+            try {
+                threads.execute(job);
+            } catch (RuntimeException e) {
+                jobs.remove(job);
+                throw e;
+            }
+        }
+    }
+
+    private final class Job implements Runnable {
+        private final Scope scope;
+        private final Lane lane;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile Thread thread;
+
+        Job(Scope scope, Lane lane, Runnable task) {
+            this.scope = scope;
+            this.lane = lane;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            peakThreads.accumulateAndGet(liveThreads.incrementAndGet(), Math::max);
+            lane.waiting().incrementAndGet();
+            try {
+                if (!acquire()) return;
+                lane.active().incrementAndGet();
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } catch (RuntimeException | Error e) {
+                    lane.runTimer().recordError();
+                    throw e;
+                } finally {
+                    lane.runTimer().record(System.nanoTime() - start);
+                    lane.active().decrementAndGet();
+                    lane.permits().release();
+                }
+            } finally {
+                liveThreads.decrementAndGet();
+                scope.jobs.remove(this);
+            }
+        }
+
+        // Waits for a permit; false if the job was cancelled first, with no permit held
+        private boolean acquire() {
+            long queuedAt = System.nanoTime();
+            try {
+                if (state.get() != WAITING) return false;
+                lane.permits().acquire();
+            } catch (InterruptedException e) {
+                // Only cancel() interrupts, and only while the job is waiting
+                return false;
+            } finally {
+                lane.waiting().decrementAndGet();
+                lane.waitTimer().record(System.nanoTime() - queuedAt);
+            }
+            if (state.compareAndSet(WAITING, RUNNING)) return true;
+            lane.permits().release();
+            return false;
+        }
+
+        void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                Thread waiter = thread;
+                if (waiter != null) waiter.interrupt();
+                cancelled.increment();
+            } else if (state.get() == RUNNING && task instanceof Future<?> future && !future.isDone()) {
+                cancelled.increment();
+            }
+            // Lets a Task report itself cancelled; it is never interrupted, see the class comment
+            if (task instanceof Future<?> future) future.cancel(false);
+        }
+    }
+
+    // Runs tasks in order, draining whatever queued up while the previous one ran
+    private final class SerialLane implements Executor {
+        private final Executor executor;
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+        private boolean draining;
+
+        SerialLane(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            queue.add(task);
+            if (!draining) {
+                draining = true;
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    queue.remove(task);
+                    draining = false;
+                    throw e;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    next = queue.poll();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    errors.increment();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Stores every entry in a handful of append-only segment files instead of one file per
+ * entry. Each save or delete appends a CRC-checked record to the active segment, and an
+ * in-memory offset index points at the latest record for each title.
+ * <p>
+ * Record layout: {@code magic:int, type:byte, timestamp:long, titleLength:int,
+ * contentLength:int, title, content, crc32:int}, where the CRC covers everything between
+ * the magic number and the checksum itself. The content is in the layout of the store's
+ * {@link EntryCodec}, so with compression on it holds compressed bytes.
+ * <p>
+ * On open the segments are replayed in order. A torn record at the end of the last
+ * segment (a crash mid-write) is truncated away. Once at least half of the journal is
+ * overwritten or deleted records, the live records are copied into a fresh segment and
+ * the old segments are removed, oldest first, so a crash part-way through compaction
+ * never resurrects a deleted entry.
+ */
+public class JournalEntryStore implements EntryStore {
+    public static final long DEFAULT_SEGMENT_SIZE = 8L * 1024 * 1024;
+
+    private static final int RECORD_MAGIC = 0xD1A2E7A1;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 4;
+    private static final int TRAILER_SIZE = 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final double COMPACTION_RATIO = 0.5;
+    private static final long COMPACTION_MIN_GARBAGE = 1024 * 1024;
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private record Location(long segment, long recordOffset, int titleLength, int contentLength, long timestamp) {
+        int recordLength() {
+            return HEADER_SIZE + titleLength + contentLength + TRAILER_SIZE;
+        }
+
+        long contentOffset() {
+            return recordOffset + HEADER_SIZE + titleLength;
+        }
+    }
+
+    private final Path journalDir;
+    private final long segmentSize;
+    private final TreeMap<Long, FileChannel> segments = new TreeMap<>();
+    private final Map<String, Location> offsets = new HashMap<>();
+    // Reads share the lock and use positional reads, so they run in parallel; appends,
+    // deletes and compaction take it exclusively
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long garbageBytes;
+    private long totalBytes;
+    private long activeSegment;
+    private final EntryCodec codec;
+
+    public JournalEntryStore(Path journalDir) throws IOException {
+        this(journalDir, DEFAULT_SEGMENT_SIZE, EntryCodec.PLAIN);
+    }
+
+    public JournalEntryStore(Path journalDir, EntryCodec codec) throws IOException {
+        this(journalDir, DEFAULT_SEGMENT_SIZE, codec);
+    }
+
+    public JournalEntryStore(Path journalDir, long segmentSize) throws IOException {
+        this(journalDir, segmentSize, EntryCodec.PLAIN);
+    }
+
+    public JournalEntryStore(Path journalDir, long segmentSize, EntryCodec codec) throws IOException {
+        this.journalDir = journalDir;
+        this.segmentSize = segmentSize;
+        this.codec = codec;
+        Files.createDirectories(journalDir);
+        recover();
+    }
+
+    @Override
+    public EntryMetadata save(String title, String content) throws IOException {
+        return importEntry(title, content, LocalDateTime.now());
+    }
+
+    @Override
+    public EntryMetadata importEntry(String title, String content, LocalDateTime modified) throws IOException {
+        // Encoded before taking the lock, so compression does not hold up other writers
+        byte[] encoded = codec.encode(content);
+        lock.writeLock().lock();
+        try {
+            long timestamp = modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            Location location = append(PUT, title, encoded, timestamp);
+            discard(offsets.put(title, location));
+            maybeCompact();
+            return new EntryMetadata(title, toDateTime(timestamp));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String read(String title) throws IOException {
+        ByteBuffer content;
+        lock.readLock().lock();
+        try {
+            Location location = offsets.get(title);
+            if (location == null) {
+                throw new NoSuchFileException(title);
+            }
+            content = ByteBuffer.allocate(location.contentLength());
+            readFully(segments.get(location.segment()), content, location.contentOffset());
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Decompressed outside the lock
+        return EntryCodec.decodeToString(content.array());
+    }
+
+    @Override
+    public ByteBuffer readBytes(String title) throws IOException {
+        ByteBuffer content;
+        lock.readLock().lock();
+        try {
+            Location location = offsets.get(title);
+            if (location == null) {
+                throw new NoSuchFileException(title);
+            }
+            FileChannel channel = segments.get(location.segment());
+            if (location.contentLength() >= MAP_THRESHOLD) {
+                // The mapping stays valid after compaction deletes the segment file
+                content = channel.map(FileChannel.MapMode.READ_ONLY, location.contentOffset(), location.contentLength());
+            } else {
+                content = ByteBuffer.allocate(location.contentLength());
+                readFully(channel, content, location.contentOffset());
+                content = content.flip().asReadOnlyBuffer();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return EntryCodec.decode(content);
+    }
+
+    @Override
+    public boolean delete(String title) throws IOException {
+        lock.writeLock().lock();
+        try {
+            Location previous = offsets.remove(title);
+            if (previous == null) return false;
+            Location tombstone = append(DELETE, title, new byte[0], System.currentTimeMillis());
+            discard(previous);
+            discard(tombstone);
+            maybeCompact();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EntryMetadata stat(String title) {
+        lock.readLock().lock();
+        try {
+            Location location = offsets.get(title);
+            return location == null ? null : new EntryMetadata(title, toDateTime(location.timestamp()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<EntryMetadata> list() {
+        lock.readLock().lock();
+        try {
+            List<EntryMetadata> entries = new ArrayList<>(offsets.size());
+            for (Map.Entry<String, Location> entry : offsets.entrySet()) {
+                entries.add(new EntryMetadata(entry.getKey(), toDateTime(entry.getValue().timestamp())));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeSegments();
+            for (Path segment : listSegmentFiles()) {
+                Files.delete(segment);
+            }
+            offsets.clear();
+            garbageBytes = 0;
+            totalBytes = 0;
+            openSegment(1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Copies the live records into a fresh segment and removes the old segments. */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            long compactedId = activeSegment + 1;
+            Path tempFile = journalDir.resolve(segmentName(compactedId) + ".tmp");
+            Map<String, Location> moved = new HashMap<>();
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long position = 0;
+                for (Map.Entry<String, Location> entry : offsets.entrySet()) {
+                    Location location = entry.getValue();
+                    ByteBuffer record = ByteBuffer.allocate(location.recordLength());
+                    readFully(segments.get(location.segment()), record, location.recordOffset());
+                    record.flip();
+                    while (record.hasRemaining()) {
+                        position += out.write(record, position);
+                    }
+                    moved.put(entry.getKey(), new Location(compactedId, position - location.recordLength(),
+                            location.titleLength(), location.contentLength(), location.timestamp()));
+                }
+                out.force(true);
+            }
+            Path compactedFile = journalDir.resolve(segmentName(compactedId));
+            Files.move(tempFile, compactedFile, StandardCopyOption.ATOMIC_MOVE);
+
+            // Oldest first: whatever survives a crash here is always a suffix of the journal
+            for (Map.Entry<Long, FileChannel> segment : segments.entrySet()) {
+                segment.getValue().close();
+                Files.delete(journalDir.resolve(segmentName(segment.getKey())));
+            }
+            segments.clear();
+            offsets.clear();
+            offsets.putAll(moved);
+            segments.put(compactedId, FileChannel.open(compactedFile, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            totalBytes = segments.get(compactedId).size();
+            garbageBytes = 0;
+            openSegment(compactedId + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closeSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> stream = Files.list(journalDir)) {
+            for (Path leftover : stream.filter(path -> path.toString().endsWith(".tmp")).toList()) {
+                Files.delete(leftover);
+            }
+        }
+        List<Path> files = listSegmentFiles();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long id = segmentId(file);
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(id, channel);
+            long validEnd = replay(id, channel);
+            long size = channel.size();
+            if (validEnd < size) {
+                if (i == files.size() - 1) {
+                    // Torn write from a crash; drop the partial record
+                    channel.truncate(validEnd);
+                    size = validEnd;
+                } else {
+                    System.err.println("Journal segment " + file + " is corrupt after offset " + validEnd);
+                    garbageBytes += size - validEnd;
+                }
+            }
+            totalBytes += size;
+        }
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            activeSegment = segments.lastKey();
+        }
+    }
+
+    // Applies every valid record in the segment and returns the offset just past the last one
+    private long replay(long segmentId, FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE + TRAILER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            if (header.getInt() != RECORD_MAGIC) break;
+            byte type = header.get();
+            long timestamp = header.getLong();
+            int titleLength = header.getInt();
+            int contentLength = header.getInt();
+            long recordLength = (long) HEADER_SIZE + titleLength + contentLength + TRAILER_SIZE;
+            if (titleLength < 0 || contentLength < 0 || position + recordLength > size) break;
+
+            ByteBuffer record = ByteBuffer.allocate((int) recordLength);
+            readFully(channel, record, position);
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 4, (int) recordLength - 4 - TRAILER_SIZE);
+            if ((int) crc.getValue() != record.getInt((int) recordLength - TRAILER_SIZE)) break;
+
+            String title = new String(record.array(), HEADER_SIZE, titleLength, StandardCharsets.UTF_8);
+            Location location = new Location(segmentId, position, titleLength, contentLength, timestamp);
+            if (type == PUT) {
+                discard(offsets.put(title, location));
+            } else {
+                discard(offsets.remove(title));
+                discard(location);
+            }
+            position += recordLength;
+        }
+        return position;
+    }
+
+    private Location append(byte type, String title, byte[] content, long timestamp) throws IOException {
+        byte[] titleBytes = title.getBytes(StandardCharsets.UTF_8);
+        int recordLength = HEADER_SIZE + titleBytes.length + content.length + TRAILER_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.putInt(RECORD_MAGIC)
+                .put(type)
+                .putLong(timestamp)
+                .putInt(titleBytes.length)
+                .putInt(content.length)
+                .put(titleBytes)
+                .put(content);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, recordLength - 4 - TRAILER_SIZE);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        FileChannel channel = segments.get(activeSegment);
+        if (channel.size() > 0 && channel.size() + recordLength > segmentSize) {
+            openSegment(activeSegment + 1);
+            channel = segments.get(activeSegment);
+        }
+        long position = channel.size();
+        while (record.hasRemaining()) {
+            channel.write(record, position + record.position());
+        }
+        channel.force(false);
+        totalBytes += recordLength;
+        return new Location(activeSegment, position, titleBytes.length, content.length, timestamp);
+    }
+
+    private void discard(Location location) {
+        if (location != null) {
+            garbageBytes += location.recordLength();
+        }
+    }
+
+    private void maybeCompact() throws IOException {
+        if (garbageBytes >= COMPACTION_MIN_GARBAGE && garbageBytes >= totalBytes * COMPACTION_RATIO) {
+            compact();
+        }
+    }
+
+    private void openSegment(long id) throws IOException {
+        Path file = journalDir.resolve(segmentName(id));
+        segments.put(id, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        activeSegment = id;
+    }
+
+    private void closeSegments() throws IOException {
+        for (FileChannel channel : segments.values()) {
+            channel.close();
+        }
+        segments.clear();
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (Stream<Path> stream = Files.list(journalDir)) {
+            return stream.filter(path -> path.toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(JournalEntryStore::segmentId))
+                    .toList();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal segment");
+            }
+        }
+    }
+
+    private static String segmentName(long id) {
+        return String.format("%010d%s", id, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static LocalDateTime toDateTime(long timestamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault());
+    }
+}
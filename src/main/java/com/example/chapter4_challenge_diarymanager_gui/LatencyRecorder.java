@@ -0,0 +1,33 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.Arrays;
+
+/** Keeps the most recent latency samples in a ring buffer and reports percentiles over them. */
+class LatencyRecorder {
+    private final long[] samples;
+    private long count;
+
+    LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long nanos) {
+        samples[(int) (count % samples.length)] = nanos;
+        count++;
+    }
+
+    /** Samples recorded since creation, including those no longer in the buffer. */
+    synchronized long getCount() {
+        return count;
+    }
+
+    /** Returns the given percentile (0-100) of the retained samples, in milliseconds. */
+    synchronized double getPercentileMillis(double percentile) {
+        int retained = (int) Math.min(count, samples.length);
+        if (retained == 0) return 0;
+        long[] sorted = Arrays.copyOf(samples, retained);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * retained) - 1;
+        return sorted[Math.max(0, Math.min(index, retained - 1))] / 1_000_000.0;
+    }
+}
@@ -7,6 +7,7 @@ import javafx.stage.Stage;
 import java.net.URL;
 
 public class MainApp extends Application {
+    private DashboardController controller;
 
     @Override
     public void start(Stage stage) throws Exception {
@@ -19,6 +20,14 @@ public class MainApp extends Application {
 
         FXMLLoader fxmlLoader = new FXMLLoader(fxmlLocation);
         Scene scene = new Scene(fxmlLoader.load(), 750, 500);
+        controller = fxmlLoader.getController();
+        StartupTimer.mark("fxml");
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override public void run() {
+                StartupTimer.mark("first-frame");
+                scene.removePostLayoutPulseListener(this);
+            }
+        });
 
 
         URL cssLocation = getClass().getResource("/com/example/chapter4_challenge_diarymanager_gui/styles.css");
@@ -35,6 +44,13 @@ public class MainApp extends Application {
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
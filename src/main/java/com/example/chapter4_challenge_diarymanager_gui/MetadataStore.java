@@ -0,0 +1,143 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Sidecar file holding every entry's id, creation and modification time, size and text
+ * figures. The file is laid out column by column (all ids, then all creation times, and
+ * so on, with the titles last) and is read back in one sequential read at startup.
+ * <p>
+ * A trailing CRC32 covers the whole file; a file that fails the check or has another
+ * version is ignored, and {@link FileManager} rebuilds the metadata from the store.
+ */
+class MetadataStore {
+    private static final int MAGIC = 0x4D455441; // "META"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    // id, created, modified, size: 8 bytes each; words, chars, text length: 4 bytes each
+    private static final int FIXED_ROW_SIZE = 4 * 8 + 3 * 4;
+
+    /** One entry as persisted: its metadata plus the figures {@link StatsAggregator} needs. */
+    record Row(EntryMetadata metadata, EntryStats stats) {}
+
+    record Contents(long nextId, List<Row> rows) {}
+
+    private final Path metadataFile;
+
+    MetadataStore(Path metadataFile) {
+        this.metadataFile = metadataFile;
+    }
+
+    /** Reads the sidecar. Returns no rows if it is missing, damaged or from another version. */
+    Contents load() throws IOException {
+        if (Files.notExists(metadataFile)) return new Contents(1, List.of());
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(metadataFile));
+        if (buffer.remaining() < HEADER_SIZE + 8 || !checksumMatches(buffer)) {
+            return new Contents(1, List.of());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return new Contents(1, List.of());
+            long nextId = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * FIXED_ROW_SIZE > buffer.remaining()) return new Contents(1, List.of());
+            long[] ids = readLongs(buffer, count);
+            long[] created = readLongs(buffer, count);
+            long[] modified = readLongs(buffer, count);
+            long[] sizes = readLongs(buffer, count);
+            int[] words = readInts(buffer, count);
+            int[] chars = readInts(buffer, count);
+            int[] textLengths = readInts(buffer, count);
+
+            List<Row> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] titleBytes = new byte[buffer.getInt()];
+                buffer.get(titleBytes);
+                String title = new String(titleBytes, StandardCharsets.UTF_8);
+                LocalDateTime createdTime = fromNanos(created[i]);
+                LocalDateTime modifiedTime = fromNanos(modified[i]);
+                rows.add(new Row(
+                        new EntryMetadata(ids[i], title, createdTime, modifiedTime, sizes[i], words[i]),
+                        new EntryStats(title, words[i], chars[i], textLengths[i], createdTime, modifiedTime)));
+            }
+            return new Contents(nextId, rows);
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            return new Contents(1, List.of());
+        }
+    }
+
+    /** Replaces the sidecar with the given rows. */
+    void save(long nextId, List<Row> rows) throws IOException {
+        int count = rows.size();
+        List<byte[]> titles = new ArrayList<>(count);
+        int titleBytes = 0;
+        for (Row row : rows) {
+            byte[] title = row.metadata().getTitle().getBytes(StandardCharsets.UTF_8);
+            titles.add(title);
+            titleBytes += 4 + title.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * FIXED_ROW_SIZE + titleBytes + 8);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(nextId).putInt(count);
+        for (Row row : rows) buffer.putLong(row.metadata().getId());
+        for (Row row : rows) buffer.putLong(toNanos(row.metadata().getCreated()));
+        for (Row row : rows) buffer.putLong(toNanos(row.metadata().getLastModified()));
+        for (Row row : rows) buffer.putLong(row.metadata().getSize());
+        for (Row row : rows) buffer.putInt(row.stats().getWordCount());
+        for (Row row : rows) buffer.putInt(row.stats().getCharCount());
+        for (Row row : rows) buffer.putInt(row.stats().getTextLength());
+        for (byte[] title : titles) buffer.putInt(title.length).put(title);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+
+        Path tempFile = metadataFile.resolveSibling(metadataFile.getFileName() + ".tmp");
+        Files.write(tempFile, buffer.array());
+        Files.move(tempFile, metadataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer) {
+        int end = buffer.limit() - 8;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, end);
+        boolean matches = crc.getValue() == buffer.getLong(end);
+        buffer.limit(end);
+        return matches;
+    }
+
+    private static long[] readLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * 8);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    // Nanosecond precision, so times compare equal to what the file system reports
+    private static long toNanos(LocalDateTime time) {
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                Math.floorMod(nanos, 1_000_000_000L)), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Counters, gauges and latency timers for the app's hot paths. Recording is lock-free
+ * and allocation-free, so it is cheap enough to wrap every storage call.
+ * <p>
+ * Timers keep a log-linear histogram (16 buckets per power of two, so percentiles are
+ * within about 6%) covering everything since the app started, and count the calls that
+ * threw. {@link #export(Path)} writes all metrics in the Prometheus text format, which
+ * the node_exporter textfile collector and most other scrapers read as is.
+ */
+public final class Metrics {
+    private static final String PREFIX = "diary_";
+
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+    private record Gauge(String help, DoubleSupplier value) {}
+
+    /** A timer's state at one point, in milliseconds. */
+    public record TimerSnapshot(String name, long count, long errors, double meanMillis,
+                                double p50Millis, double p95Millis, double p99Millis, double maxMillis) {}
+
+    /** Returns the counter with this name, creating it the first time. */
+    public Counter counter(String name, String help) {
+        return counters.computeIfAbsent(name, key -> new Counter(help));
+    }
+
+    /** Returns the timer with this name, creating it the first time. */
+    public Timer timer(String name, String help) {
+        return timers.computeIfAbsent(name, key -> new Timer(help));
+    }
+
+    /** Registers a value that is read whenever the metrics are exported. */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, new Gauge(help, value));
+    }
+
+    /** Snapshots of every timer, by name. */
+    public List<TimerSnapshot> timerSnapshots() {
+        List<TimerSnapshot> snapshots = new ArrayList<>();
+        timers.forEach((name, timer) -> snapshots.add(timer.snapshot(name)));
+        return snapshots;
+    }
+
+    /** Writes every metric in the Prometheus text exposition format. */
+    public void writeTo(Writer out) throws IOException {
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            String name = PREFIX + entry.getKey() + "_total";
+            header(out, name, entry.getValue().help, "counter");
+            out.write(name + " " + entry.getValue().get() + "\n");
+        }
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            String name = PREFIX + entry.getKey();
+            header(out, name, entry.getValue().help(), "gauge");
+            out.write(name + " " + format(entry.getValue().value().getAsDouble()) + "\n");
+        }
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            TimerSnapshot snapshot = timer.snapshot(entry.getKey());
+            String name = PREFIX + entry.getKey() + "_seconds";
+            header(out, name, timer.help, "summary");
+            out.write(name + "{quantile=\"0.5\"} " + format(snapshot.p50Millis() / 1e3) + "\n");
+            out.write(name + "{quantile=\"0.95\"} " + format(snapshot.p95Millis() / 1e3) + "\n");
+            out.write(name + "{quantile=\"0.99\"} " + format(snapshot.p99Millis() / 1e3) + "\n");
+            out.write(name + "_sum " + format(timer.sum.sum() / 1e9) + "\n");
+            out.write(name + "_count " + snapshot.count() + "\n");
+            String errors = PREFIX + entry.getKey() + "_errors_total";
+            header(out, errors, "Calls that failed: " + timer.help, "counter");
+            out.write(errors + " " + snapshot.errors() + "\n");
+        }
+    }
+
+    /** Writes the metrics to a file, replacing it in one step so a scraper never sees half of it. */
+    public void export(Path file) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writeTo(out);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void header(Writer out, String name, String help, String type) throws IOException {
+        out.write("# HELP " + name + " " + help.replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return Double.toString(value);
+    }
+
+    public static final class Counter {
+        private final String help;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String help) {
+            this.help = help;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public static final class Timer {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final String help;
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final LongAdder errors = new LongAdder();
+
+        private Timer(String help) {
+            this.help = help;
+        }
+
+        /** Records one call that took {@code nanos}. */
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(bucketOf(value));
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /** Counts a call that threw. Its time is still recorded separately. */
+        public void recordError() {
+            errors.increment();
+        }
+
+        /** Times a call that does not throw checked exceptions. */
+        public void time(Runnable action) {
+            long start = System.nanoTime();
+            try {
+                action.run();
+            } catch (RuntimeException | Error e) {
+                errors.increment();
+                throw e;
+            } finally {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        TimerSnapshot snapshot(String name) {
+            long[] buckets = new long[counts.length()];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = counts.get(i);
+                total += buckets[i];
+            }
+            long maxNanos = max.get();
+            return new TimerSnapshot(name, total, errors.sum(),
+                    total == 0 ? 0 : sum.sum() / (double) total / 1e6,
+                    percentile(buckets, total, maxNanos, 50) / 1e6,
+                    percentile(buckets, total, maxNanos, 95) / 1e6,
+                    percentile(buckets, total, maxNanos, 99) / 1e6,
+                    maxNanos / 1e6);
+        }
+
+        private static long percentile(long[] buckets, long total, long maxNanos, double percentile) {
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return Math.min(upperBoundOf(i), maxNanos);
+            }
+            return maxNanos;
+        }
+
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+            long lower = (1L << magnitude) | (subBucket << (magnitude - SUB_BUCKET_BITS));
+            return lower + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
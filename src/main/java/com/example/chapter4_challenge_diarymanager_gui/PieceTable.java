@@ -0,0 +1,118 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A text buffer that never moves the text it holds. The text it started with and
+ * everything inserted since sit in two buffers that only grow, and the document is a
+ * list of pieces pointing into them. An edit splits at most two pieces and adds at
+ * most one, so it costs the size of the edit plus a walk over the pieces, however long
+ * the text is. Typing at one spot keeps extending the same piece.
+ * <p>
+ * Pieces pile up over many edits; {@link #compact()} folds them back into one.
+ */
+final class PieceTable {
+    private record Piece(boolean added, int start, int length) {}
+
+    private String original;
+    private final StringBuilder added = new StringBuilder();
+    private final List<Piece> pieces = new ArrayList<>();
+    private int length;
+
+    PieceTable(String text) {
+        reset(text);
+    }
+
+    int length() {
+        return length;
+    }
+
+    int getPieceCount() {
+        return pieces.size();
+    }
+
+    /** Replaces {@code removed} chars at {@code offset} with {@code text}. */
+    void replace(int offset, int removed, CharSequence text) {
+        Objects.checkFromIndexSize(offset, removed, length);
+        int from = split(offset);
+        int to = split(offset + removed);
+        pieces.subList(from, to).clear();
+        if (text.length() > 0) {
+            Piece previous = from > 0 ? pieces.get(from - 1) : null;
+            if (previous != null && previous.added() && previous.start() + previous.length() == added.length()) {
+                pieces.set(from - 1, new Piece(true, previous.start(), previous.length() + text.length()));
+            } else {
+                pieces.add(from, new Piece(true, added.length(), text.length()));
+            }
+            added.append(text);
+        }
+        length += text.length() - removed;
+    }
+
+    void apply(TextEdit edit) {
+        replace(edit.offset(), edit.removed(), edit.inserted());
+    }
+
+    String substring(int from, int to) {
+        Objects.checkFromToIndex(from, to, length);
+        StringBuilder text = new StringBuilder(to - from);
+        int position = 0;
+        for (Piece piece : pieces) {
+            int end = position + piece.length();
+            if (end > from && position < to) {
+                int start = Math.max(from, position) - position;
+                int stop = Math.min(to, end) - position;
+                append(text, piece, start, stop);
+            }
+            if (end >= to) break;
+            position = end;
+        }
+        return text.toString();
+    }
+
+    /** Folds every piece into one new original text, and returns that text. */
+    String compact() {
+        String text = toString();
+        reset(text);
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(length);
+        for (Piece piece : pieces) append(text, piece, 0, piece.length());
+        return text.toString();
+    }
+
+    private void reset(String text) {
+        original = text;
+        added.setLength(0);
+        pieces.clear();
+        if (!text.isEmpty()) pieces.add(new Piece(false, 0, text.length()));
+        length = text.length();
+    }
+
+    private void append(StringBuilder text, Piece piece, int from, int to) {
+        CharSequence buffer = piece.added() ? added : original;
+        text.append(buffer, piece.start() + from, piece.start() + to);
+    }
+
+    // Makes a piece boundary at the offset and returns the index of the piece after it
+    private int split(int offset) {
+        int position = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            if (position == offset) return i;
+            Piece piece = pieces.get(i);
+            int inside = offset - position;
+            if (inside < piece.length()) {
+                pieces.set(i, new Piece(piece.added(), piece.start(), inside));
+                pieces.add(i + 1, new Piece(piece.added(), piece.start() + inside, piece.length() - inside));
+                return i + 1;
+            }
+            position += piece.length();
+        }
+        return pieces.size();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/** One saved version of an entry, as listed by {@link FileManager#listRevisions}. */
+public final class Revision {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("d MMM yyyy, HH:mm:ss");
+
+    private final int number;
+    private final LocalDateTime savedAt;
+    private final int size;
+
+    Revision(int number, LocalDateTime savedAt, int size) {
+        this.number = number;
+        this.savedAt = savedAt;
+        this.size = size;
+    }
+
+    /** Revision number, counting up from 1 for each entry. Numbers survive thinning. */
+    public int getNumber() { return number; }
+    public LocalDateTime getSavedAt() { return savedAt; }
+    /** Size of the content in UTF-8 bytes. */
+    public int getSize() { return size; }
+
+    @Override
+    public String toString() {
+        return "#" + number + "  " + FORMAT.format(savedAt) + "  (" + size + " bytes)";
+    }
+}
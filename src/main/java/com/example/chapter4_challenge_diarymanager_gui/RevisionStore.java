@@ -0,0 +1,406 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Saved versions of every entry, one append-only file per entry id under
+ * {@code .revisions/}, so an entry keeps its history when it is renamed.
+ * <p>
+ * Each revision is stored as a delta against the one before it: the length of the
+ * prefix and suffix the two share, plus the bytes in between. That is all an autosave
+ * of a few typed words costs. Every {@value #KEYFRAME_INTERVAL}th revision, and any
+ * revision that changed more than half the entry, is a compressed full copy instead, so
+ * rebuilding any revision applies at most {@value #KEYFRAME_INTERVAL} deltas.
+ * <p>
+ * Record layout: {@code magic:int, type:byte, revision:int, timestamp:long, size:int,
+ * prefix:int, suffix:int, payloadLength:int, payload, crc32:int}. A torn record at the
+ * end of a file is cut off the next time the file is written.
+ * <p>
+ * Every {@value #THIN_INTERVAL} revisions the file is thinned: everything from the last
+ * hour is kept, then the newest revision of each hour for a day, of each day for 90 days
+ * and of each week after that. Revision numbers do not change when others are dropped.
+ */
+class RevisionStore {
+    static final int KEYFRAME_INTERVAL = 16;
+    static final int THIN_INTERVAL = 64;
+
+    private static final int MAGIC = 0x52455631; // "REV1"
+    private static final byte KEYFRAME = 1;
+    private static final byte DELTA = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 8 + 4 + 4 + 4 + 4;
+    private static final int TRAILER_SIZE = 4;
+    private static final int CACHED_HISTORIES = 64;
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    private record Record(byte type, int revision, long timestamp, int size, int prefix, int suffix,
+                          byte[] payload) {}
+
+    // Where a record sits in its file
+    private record Slot(int revision, byte type, long timestamp, int size, long offset, int length) {}
+
+    // An entry's file as last read or written, so saves and reads do not parse it again.
+    // Guarded by the entry's lock.
+    private static final class History {
+        final List<Slot> slots = new ArrayList<>();
+        // Content of the newest revision, the base for the next delta
+        byte[] newest;
+        int sinceKeyframe;
+        // End of the last intact record
+        long length;
+    }
+
+    private final Path revisionsDir;
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final Map<Long, History> histories = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, History> eldest) {
+            return size() > CACHED_HISTORIES;
+        }
+    };
+
+    RevisionStore(Path revisionsDir) {
+        this.revisionsDir = revisionsDir;
+    }
+
+    /** Adds a revision for the entry, unless the content is the same as its newest one. */
+    void record(long id, String content, LocalDateTime savedAt) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        long timestamp = toMillis(savedAt);
+        synchronized (lockFor(id)) {
+            History history = history(id);
+            if (history.newest != null && Arrays.equals(history.newest, bytes)) return;
+
+            int revision = history.slots.isEmpty() ? 1 : history.slots.get(history.slots.size() - 1).revision() + 1;
+            Record record = history.newest == null || history.sinceKeyframe + 1 >= KEYFRAME_INTERVAL
+                    ? keyframe(revision, timestamp, bytes)
+                    : delta(revision, timestamp, history.newest, bytes);
+            ByteBuffer encoded = encode(record);
+            int recordLength = encoded.remaining();
+            Files.createDirectories(revisionsDir);
+            try (FileChannel channel = FileChannel.open(fileFor(id), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                // Also drops a torn record left at the end by a crash
+                channel.truncate(history.length);
+                channel.position(history.length);
+                while (encoded.hasRemaining()) channel.write(encoded);
+            }
+            history.slots.add(new Slot(revision, record.type(), timestamp, bytes.length, history.length, recordLength));
+            history.length += recordLength;
+            history.newest = bytes;
+            history.sinceKeyframe = record.type() == KEYFRAME ? 0 : history.sinceKeyframe + 1;
+            if (revision % THIN_INTERVAL == 0) thin(id, history, System.currentTimeMillis());
+        }
+    }
+
+    /** Lists an entry's revisions, newest first. */
+    List<Revision> list(long id) throws IOException {
+        synchronized (lockFor(id)) {
+            List<Slot> slots = history(id).slots;
+            List<Revision> revisions = new ArrayList<>(slots.size());
+            for (int i = slots.size() - 1; i >= 0; i--) {
+                Slot slot = slots.get(i);
+                revisions.add(new Revision(slot.revision(), fromMillis(slot.timestamp()), slot.size()));
+            }
+            return revisions;
+        }
+    }
+
+    /**
+     * Rebuilds one revision of an entry. Only the records from the keyframe before it up
+     * to the revision itself are read.
+     */
+    String read(long id, int revision) throws IOException {
+        synchronized (lockFor(id)) {
+            History history = history(id);
+            List<Slot> slots = history.slots;
+            int index = indexOf(slots, revision);
+            if (index < 0) throw new NoSuchFileException("Revision " + revision + " of entry " + id);
+            if (index == slots.size() - 1) return new String(history.newest, StandardCharsets.UTF_8);
+
+            int keyframe = index;
+            while (slots.get(keyframe).type() != KEYFRAME) keyframe--;
+            Slot first = slots.get(keyframe);
+            Slot last = slots.get(index);
+            ByteBuffer buffer = ByteBuffer.allocate((int) (last.offset() + last.length() - first.offset()));
+            try (FileChannel channel = FileChannel.open(fileFor(id), StandardOpenOption.READ)) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, first.offset() + buffer.position()) < 0) {
+                        throw new EOFException("Revision history of entry " + id + " is truncated");
+                    }
+                }
+            }
+            List<Record> records = new ArrayList<>();
+            parse(buffer.array(), records, null, 0);
+            if (records.size() != index - keyframe + 1) {
+                throw new IOException("Revision history of entry " + id + " is damaged");
+            }
+            byte[] content = null;
+            for (Record record : records) content = apply(content, record);
+            return new String(content, StandardCharsets.UTF_8);
+        }
+    }
+
+    void delete(long id) throws IOException {
+        synchronized (lockFor(id)) {
+            synchronized (histories) {
+                histories.remove(id);
+            }
+            Files.deleteIfExists(fileFor(id));
+        }
+    }
+
+    /** Deletes every entry's history. Callers must make sure no entry is being saved. */
+    void clear() throws IOException {
+        synchronized (histories) {
+            histories.clear();
+        }
+        if (Files.notExists(revisionsDir)) return;
+        try (Stream<Path> files = Files.list(revisionsDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /** Total bytes of history on disk. */
+    long diskUsage() throws IOException {
+        if (Files.notExists(revisionsDir)) return 0;
+        try (Stream<Path> files = Files.list(revisionsDir)) {
+            long total = 0;
+            for (Path file : (Iterable<Path>) files::iterator) total += Files.size(file);
+            return total;
+        }
+    }
+
+    // Rewrites the file with only the revisions the retention policy keeps
+    private void thin(long id, History history, long now) throws IOException {
+        Set<Integer> kept = retained(history.slots, now);
+        if (kept.size() == history.slots.size()) return;
+
+        List<Record> records = new ArrayList<>();
+        parse(Files.readAllBytes(fileFor(id)), records, null, 0);
+        List<Record> rewritten = new ArrayList<>();
+        byte[] content = null;
+        byte[] previous = null;
+        int sinceKeyframe = 0;
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            content = apply(content, record);
+            if (!kept.contains(i)) continue;
+            Record encoded = previous == null || sinceKeyframe + 1 >= KEYFRAME_INTERVAL
+                    ? keyframe(record.revision(), record.timestamp(), content)
+                    : delta(record.revision(), record.timestamp(), previous, content);
+            sinceKeyframe = encoded.type() == KEYFRAME ? 0 : sinceKeyframe + 1;
+            rewritten.add(encoded);
+            previous = content;
+        }
+
+        Path file = fileFor(id);
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Slot> slots = new ArrayList<>(rewritten.size());
+        long length = 0;
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Record record : rewritten) {
+                ByteBuffer encoded = encode(record);
+                slots.add(new Slot(record.revision(), record.type(), record.timestamp(), record.size(),
+                        length, encoded.remaining()));
+                length += encoded.remaining();
+                while (encoded.hasRemaining()) channel.write(encoded);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        history.slots.clear();
+        history.slots.addAll(slots);
+        history.sinceKeyframe = sinceKeyframe;
+        history.length = length;
+    }
+
+    // Indexes of the revisions to keep: everything from the last hour, then the newest
+    // revision per hour for a day, per day for 90 days and per week after that
+    private static Set<Integer> retained(List<Slot> slots, long now) {
+        Set<Integer> kept = new HashSet<>();
+        Set<Long> buckets = new HashSet<>();
+        for (int i = slots.size() - 1; i >= 0; i--) {
+            long timestamp = slots.get(i).timestamp();
+            long age = now - timestamp;
+            if (i == slots.size() - 1 || age < HOUR) {
+                kept.add(i);
+                continue;
+            }
+            long bucket;
+            if (age < DAY) {
+                bucket = Math.floorDiv(timestamp, HOUR);
+            } else if (age < 90 * DAY) {
+                bucket = (1L << 40) + Math.floorDiv(timestamp, DAY);
+            } else {
+                bucket = (2L << 40) + Math.floorDiv(timestamp, 7 * DAY);
+            }
+            if (buckets.add(bucket)) kept.add(i);
+        }
+        return kept;
+    }
+
+    private static int indexOf(List<Slot> slots, int revision) {
+        int low = 0;
+        int high = slots.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int found = slots.get(mid).revision();
+            if (found < revision) low = mid + 1;
+            else if (found > revision) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private History history(long id) throws IOException {
+        synchronized (histories) {
+            History history = histories.get(id);
+            if (history != null) return history;
+        }
+        History history = new History();
+        byte[] file;
+        try {
+            file = Files.readAllBytes(fileFor(id));
+        } catch (NoSuchFileException e) {
+            file = new byte[0];
+        }
+        List<Record> records = new ArrayList<>();
+        history.length = parse(file, records, history.slots, 0);
+        for (Record record : records) {
+            history.newest = apply(history.newest, record);
+            history.sinceKeyframe = record.type() == KEYFRAME ? 0 : history.sinceKeyframe + 1;
+        }
+        synchronized (histories) {
+            histories.put(id, history);
+        }
+        return history;
+    }
+
+    // Reads records up to the first damaged one and returns where that one starts
+    private static long parse(byte[] bytes, List<Record> records, List<Slot> slots, long baseOffset) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int end = 0;
+        while (buffer.remaining() >= HEADER_SIZE + TRAILER_SIZE) {
+            int start = buffer.position();
+            if (buffer.getInt() != MAGIC) break;
+            byte type = buffer.get();
+            int revision = buffer.getInt();
+            long timestamp = buffer.getLong();
+            int size = buffer.getInt();
+            int prefix = buffer.getInt();
+            int suffix = buffer.getInt();
+            int payloadLength = buffer.getInt();
+            if (payloadLength < 0 || payloadLength > buffer.remaining() - TRAILER_SIZE) break;
+            byte[] payload = new byte[payloadLength];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(bytes, start + 4, buffer.position() - start - 4);
+            if ((int) crc.getValue() != buffer.getInt()) break;
+            records.add(new Record(type, revision, timestamp, size, prefix, suffix, payload));
+            if (slots != null) {
+                slots.add(new Slot(revision, type, timestamp, size, baseOffset + start, buffer.position() - start));
+            }
+            end = buffer.position();
+        }
+        return baseOffset + end;
+    }
+
+    private static Record keyframe(int revision, long timestamp, byte[] content) {
+        byte[] payload = EntryCodec.DEFLATE.encode(new String(content, StandardCharsets.UTF_8));
+        return new Record(KEYFRAME, revision, timestamp, content.length, 0, 0, payload);
+    }
+
+    // A delta against the previous revision, or a keyframe if most of the entry changed
+    private static Record delta(int revision, long timestamp, byte[] previous, byte[] content) {
+        int limit = Math.min(previous.length, content.length);
+        int prefix = 0;
+        while (prefix < limit && previous[prefix] == content[prefix]) prefix++;
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && previous[previous.length - 1 - suffix] == content[content.length - 1 - suffix]) {
+            suffix++;
+        }
+        int changed = content.length - prefix - suffix;
+        if (changed > content.length / 2) return keyframe(revision, timestamp, content);
+        return new Record(DELTA, revision, timestamp, content.length, prefix, suffix,
+                Arrays.copyOfRange(content, prefix, prefix + changed));
+    }
+
+    private static byte[] apply(byte[] previous, Record record) throws IOException {
+        if (record.type() == KEYFRAME) {
+            ByteBuffer decoded = EntryCodec.decode(ByteBuffer.wrap(record.payload()));
+            byte[] content = new byte[decoded.remaining()];
+            decoded.get(content);
+            return content;
+        }
+        if (previous == null || record.prefix() + record.suffix() > previous.length) {
+            throw new IOException("Revision " + record.revision() + " does not follow the one before it");
+        }
+        byte[] content = new byte[record.size()];
+        System.arraycopy(previous, 0, content, 0, record.prefix());
+        System.arraycopy(record.payload(), 0, content, record.prefix(), record.payload().length);
+        System.arraycopy(previous, previous.length - record.suffix(), content,
+                record.prefix() + record.payload().length, record.suffix());
+        return content;
+    }
+
+    private static ByteBuffer encode(Record record) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + record.payload().length + TRAILER_SIZE);
+        buffer.putInt(MAGIC)
+                .put(record.type())
+                .putInt(record.revision())
+                .putLong(record.timestamp())
+                .putInt(record.size())
+                .putInt(record.prefix())
+                .putInt(record.suffix())
+                .putInt(record.payload().length)
+                .put(record.payload());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, buffer.position() - 4);
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    private Object lockFor(long id) {
+        return locks.computeIfAbsent(id, key -> new Object());
+    }
+
+    private Path fileFor(long id) {
+        return revisionsDir.resolve(id + ".rev");
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Funnels every save through a single writer, one write at a time. While a save for an entry is still
+ * queued, further saves of the same entry just replace its content, so a burst of
+ * autosaves turns into one write. Content that hashes the same as the last successful
+ * write of that entry is not written again.
+ * <p>
+ * A save can also be a batch of {@link TextEdit}s, which is appended to the entry's edit
+ * log instead of rewriting it. Batches queued behind each other are joined; a batch
+ * queued behind a full save is folded into that save's content, and a full save queued
+ * behind a batch replaces it, since it already holds those edits.
+ */
+class SaveQueue {
+    private static final int LATENCY_SAMPLES = 256;
+
+    // Either full content, or edits to the text of length lengthBefore
+    private record PendingSave(String renameFrom, String content, int lengthBefore, List<TextEdit> edits,
+                               Consumer<EntryMetadata> onSaved, Consumer<IOException> onFailed) {}
+
+    private final FileManager fileManager;
+    private final Executor writer;
+    private final Executor resultExecutor;
+
+    // All guarded by "this"
+    private final Map<String, PendingSave> pending = new HashMap<>();
+    private final Map<String, byte[]> savedHashes = new HashMap<>();
+    private int queuedWrites;
+
+    private final LatencyRecorder latencies = new LatencyRecorder(LATENCY_SAMPLES);
+    private long coalescedCount;
+    private long skippedCount;
+
+    /**
+     * @param fileManager    where entries are written
+     * @param writer         runs the writes; must run them one at a time, in order
+     * @param resultExecutor where callbacks run, e.g. {@code Platform::runLater}
+     */
+    SaveQueue(FileManager fileManager, Executor writer, Executor resultExecutor) {
+        this.fileManager = fileManager;
+        this.writer = writer;
+        this.resultExecutor = resultExecutor;
+    }
+
+    /**
+     * Queues a save. {@code onSaved} receives the entry's metadata once it is on disk
+     * (or was already up to date); {@code onFailed} receives the error if the write failed.
+     */
+    synchronized void submit(DiaryEntry entry, Consumer<EntryMetadata> onSaved, Consumer<IOException> onFailed) {
+        submit(entry, null, onSaved, onFailed);
+    }
+
+    /**
+     * Queues a save that first renames the entry called {@code renameFrom} to the entry's
+     * title, so it keeps its id and history. If that entry no longer exists, or the new
+     * title is already taken, this is a plain save.
+     */
+    synchronized void submit(DiaryEntry entry, String renameFrom,
+                             Consumer<EntryMetadata> onSaved, Consumer<IOException> onFailed) {
+        PendingSave previous = pending.get(entry.getTitle());
+        if (renameFrom == null && previous != null) renameFrom = previous.renameFrom();
+        queue(entry.getTitle(), new PendingSave(renameFrom, entry.getContent(), 0, null, onSaved, onFailed));
+    }
+
+    /**
+     * Queues edits made to an entry since its last queued save; see
+     * {@link FileManager#appendEdits}. {@code lengthBefore} is the length of the text the
+     * first edit applies to. If the edits cannot be appended, {@code onFailed} is called
+     * and the caller should queue a full save, which supersedes them.
+     */
+    synchronized void submitEdits(String title, int lengthBefore, List<TextEdit> edits,
+                                  Consumer<EntryMetadata> onSaved, Consumer<IOException> onFailed) {
+        PendingSave previous = pending.get(title);
+        if (previous == null) {
+            queue(title, new PendingSave(null, null, lengthBefore, List.copyOf(edits), onSaved, onFailed));
+        } else if (previous.content() != null) {
+            if (previous.content().length() != lengthBefore) {
+                IOException error = new IOException("\"" + title + "\" has changed since these edits were made");
+                resultExecutor.execute(() -> onFailed.accept(error));
+                return;
+            }
+            StringBuilder content = new StringBuilder(previous.content());
+            for (TextEdit edit : edits) edit.applyTo(content);
+            queue(title, new PendingSave(previous.renameFrom(), content.toString(), 0, null, onSaved, onFailed));
+        } else {
+            List<TextEdit> joined = new ArrayList<>(previous.edits());
+            joined.addAll(edits);
+            queue(title, new PendingSave(null, null, previous.lengthBefore(), joined, onSaved, onFailed));
+        }
+    }
+
+    // Guarded by "this"
+    private void queue(String title, PendingSave save) {
+        if (pending.put(title, save) != null) {
+            coalescedCount++;
+            return;
+        }
+        queuedWrites++;
+        writer.execute(() -> {
+            try {
+                write(title);
+            } finally {
+                writeDone();
+            }
+        });
+    }
+
+    /** Records content as already on disk, e.g. right after loading an entry. */
+    synchronized void markSaved(String title, String content) {
+        savedHashes.put(title, hash(content));
+    }
+
+    /**
+     * Forgets an entry that is being deleted elsewhere: a save of it still queued is
+     * dropped, so it cannot bring the entry back, and so is what was written for it.
+     */
+    synchronized void forget(String title) {
+        pending.remove(title);
+        savedHashes.remove(title);
+    }
+
+    /**
+     * Deletes an entry on the writer, so a write of it already under way finishes first
+     * and a save of it still queued is dropped instead of bringing it back.
+     */
+    synchronized void delete(String title, Runnable onDeleted, Consumer<IOException> onFailed) {
+        forget(title);
+        queuedWrites++;
+        writer.execute(() -> {
+            try {
+                fileManager.deleteEntry(title);
+                resultExecutor.execute(onDeleted);
+            } catch (IOException | RuntimeException e) {
+                IOException error = e instanceof IOException io ? io : new IOException(e);
+                resultExecutor.execute(() -> onFailed.accept(error));
+            } finally {
+                writeDone();
+            }
+        });
+    }
+
+    synchronized void forgetAll() {
+        savedHashes.clear();
+    }
+
+    private void write(String title) {
+        PendingSave save;
+        byte[] previousHash;
+        synchronized (this) {
+            save = pending.remove(title);
+            previousHash = savedHashes.get(title);
+        }
+        // Dropped by forget(), or already written by the task queued for an earlier save
+        if (save == null) return;
+        if (save.renameFrom() != null && fileManager.getEntryMetadata(save.renameFrom()) != null
+                && fileManager.getEntryMetadata(title) == null) {
+            try {
+                fileManager.renameEntry(save.renameFrom(), title);
+                synchronized (this) {
+                    previousHash = savedHashes.remove(save.renameFrom());
+                    if (previousHash != null) savedHashes.put(title, previousHash);
+                }
+            } catch (IOException e) {
+                resultExecutor.execute(() -> save.onFailed().accept(e));
+                return;
+            }
+        }
+        if (save.content() == null) {
+            appendEdits(title, save);
+            return;
+        }
+        byte[] contentHash = hash(save.content());
+        EntryMetadata existing = fileManager.getEntryMetadata(title);
+        if (existing != null && Arrays.equals(contentHash, previousHash)) {
+            synchronized (this) {
+                skippedCount++;
+            }
+            resultExecutor.execute(() -> save.onSaved().accept(existing));
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            EntryMetadata metadata = fileManager.saveEntry(new DiaryEntry(title, save.content()));
+            latencies.record(System.nanoTime() - start);
+            synchronized (this) {
+                savedHashes.put(title, contentHash);
+            }
+            resultExecutor.execute(() -> save.onSaved().accept(metadata));
+        } catch (IOException | RuntimeException e) {
+            failed(save, e);
+        }
+    }
+
+    private void appendEdits(String title, PendingSave save) {
+        try {
+            EntryMetadata metadata = fileManager.appendEdits(title, save.lengthBefore(), save.edits());
+            synchronized (this) {
+                // The edits changed the content, so the next full save must not be skipped
+                savedHashes.remove(title);
+            }
+            resultExecutor.execute(() -> save.onSaved().accept(metadata));
+        } catch (IOException | RuntimeException e) {
+            failed(save, e);
+        }
+    }
+
+    // Every save ends in one of its callbacks, also when the write threw unchecked
+    private void failed(PendingSave save, Exception e) {
+        IOException error = e instanceof IOException io ? io : new IOException(e);
+        resultExecutor.execute(() -> save.onFailed().accept(error));
+    }
+
+    private synchronized void writeDone() {
+        queuedWrites--;
+        notifyAll();
+    }
+
+    /** Saves that were folded into an already queued save of the same entry. */
+    synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /** Saves dropped because the content had not changed since the last write. */
+    synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    long getWrittenCount() {
+        return latencies.getCount();
+    }
+
+    double getSaveLatencyPercentile(double percentile) {
+        return latencies.getPercentileMillis(percentile);
+    }
+
+    /** Waits briefly for queued saves to reach the disk. */
+    synchronized void shutdown() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        try {
+            while (queuedWrites > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) return;
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] hash(String content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+}
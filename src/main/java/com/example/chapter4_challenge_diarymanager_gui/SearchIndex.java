@@ -0,0 +1,432 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over entry titles and bodies. Each indexed entry gets a number, and each
+ * term maps to a posting list of entry numbers with the term frequency in that entry. The
+ * terms are kept in a sorted map so prefix queries are a sub-map range rather than a scan
+ * of the vocabulary.
+ * <p>
+ * The forward index (title to terms) is what gets persisted; posting lists are rebuilt
+ * from it on load. Searches share a read lock and run in parallel; updates take the
+ * write lock, with the tokenizing done before the lock is taken.
+ */
+class SearchIndex {
+    private static final int FORMAT_VERSION = 2;
+    // Title words count as much as this many occurrences in the body
+    private static final int TITLE_WEIGHT = 5;
+    // Builder entries are numbered when the builder is swapped in
+    private static final int UNNUMBERED = -1;
+
+    private final Path indexFile;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Contents contents = new Contents();
+    private boolean dirty;
+
+    private record IndexedDocument(int id, long modified, Map<String, Integer> termFrequencies) {}
+
+    // Term matched by one query word: its posting lists and how many postings they hold
+    private record TermMatch(Collection<PostingList> postings, int size) {}
+
+    SearchIndex(Path indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    void index(String title, long modified, CharSequence html) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        new HtmlTokenizer(true).tokenize(html, (buffer, length) ->
+                frequencies.merge(new String(buffer, 0, length), 1, Integer::sum));
+        index(title, modified, frequencies);
+    }
+
+    /** Indexes UTF-8 encoded HTML straight from the buffer, e.g. a mapped entry. */
+    void index(String title, long modified, ByteBuffer html) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        new HtmlTokenizer(true).tokenize(html, (buffer, length) ->
+                frequencies.merge(new String(buffer, 0, length), 1, Integer::sum));
+        index(title, modified, frequencies);
+    }
+
+    private void index(String title, long modified, Map<String, Integer> frequencies) {
+        for (String term : extractTerms(title)) {
+            frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            remove(title);
+            contents.add(title, modified, frequencies);
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with one built off to the side, in a single step. The posting
+     * lists are filled before the lock is taken.
+     */
+    void replaceWith(Builder builder) {
+        Contents rebuilt = new Contents();
+        for (Map.Entry<String, IndexedDocument> document : builder.documents.entrySet()) {
+            rebuilt.add(document.getKey(), document.getValue().modified(), document.getValue().termFrequencies());
+        }
+        lock.writeLock().lock();
+        try {
+            contents = rebuilt;
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A detached index for full rebuilds. Each thread fills its own builder without any
+     * locking, builders are merged pairwise, and the result is swapped in with
+     * {@link #replaceWith}, so rebuilding does not serialize on the live index's lock.
+     */
+    static final class Builder {
+        private final Map<String, IndexedDocument> documents = new HashMap<>();
+
+        void add(String title, long modified, ByteBuffer html) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            new HtmlTokenizer(true).tokenize(html, (buffer, length) ->
+                    frequencies.merge(new String(buffer, 0, length), 1, Integer::sum));
+            for (String term : extractTerms(title)) {
+                frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+            }
+            documents.put(title, new IndexedDocument(UNNUMBERED, modified, frequencies));
+        }
+
+        /** Merges two builders over different entries; returns whichever absorbed the other. */
+        Builder merge(Builder other) {
+            Builder large = documents.size() >= other.documents.size() ? this : other;
+            Builder small = large == this ? other : this;
+            large.documents.putAll(small.documents);
+            return large;
+        }
+    }
+
+    void remove(String title) {
+        lock.writeLock().lock();
+        try {
+            if (!contents.remove(title)) return;
+            // Entry numbers are not reused, so renumber once most of them are gone
+            if (contents.titlesById.size() > 2 * contents.documents.size() + 1024) {
+                contents = contents.renumbered();
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            contents = new Contents();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** True if the entry is indexed and the indexed copy has the given modification stamp. */
+    boolean isCurrent(String title, long modified) {
+        lock.readLock().lock();
+        try {
+            IndexedDocument document = contents.documents.get(title);
+            return document != null && document.modified() == modified;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Drops every indexed entry whose title is not in the given set. */
+    void retainOnly(Set<String> titles) {
+        lock.writeLock().lock();
+        try {
+            for (String title : new ArrayList<>(contents.documents.keySet())) {
+                if (!titles.contains(title)) remove(title);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the titles of the best {@code limit} entries matching every term of the query,
+     * best match first. Each query term matches as a prefix, so partially typed words
+     * already find results. The term with the fewest postings picks the candidates, and the
+     * other terms only narrow them down.
+     */
+    List<String> search(String query, int limit) {
+        List<String> terms = extractTerms(query);
+        if (terms.isEmpty() || limit <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            List<TermMatch> matches = new ArrayList<>();
+            for (String term : new LinkedHashSet<>(terms)) {
+                TermMatch match = contents.match(term);
+                if (match.size() == 0) return List.of();
+                matches.add(match);
+            }
+            matches.sort(Comparator.comparingInt(TermMatch::size));
+
+            // scores[id] is the entry's score so far, and 0 once it is out of the running
+            int[] scores = new int[contents.titlesById.size()];
+            int[] candidates = new int[matches.get(0).size()];
+            int count = 0;
+            for (PostingList posting : matches.get(0).postings()) {
+                for (int i = 0; i < posting.size; i++) {
+                    int id = posting.ids[i];
+                    if (posting.frequencies[i] == 0) continue;
+                    if (scores[id] == 0) candidates[count++] = id;
+                    scores[id] += posting.frequencies[i];
+                }
+            }
+
+            int[] added = null;
+            for (int t = 1; t < matches.size() && count > 0; t++) {
+                TermMatch match = matches.get(t);
+                int kept = 0;
+                // Looking a candidate up is a binary search in each posting list
+                long lookups = (long) count * match.postings().size() * (32 - Integer.numberOfLeadingZeros(match.size()));
+                if (lookups < match.size()) {
+                    for (int c = 0; c < count; c++) {
+                        int id = candidates[c];
+                        int frequency = 0;
+                        for (PostingList posting : match.postings()) {
+                            frequency += posting.frequency(id);
+                        }
+                        scores[id] = frequency == 0 ? 0 : scores[id] + frequency;
+                        if (frequency > 0) candidates[kept++] = id;
+                    }
+                } else {
+                    if (added == null) added = new int[scores.length];
+                    for (PostingList posting : match.postings()) {
+                        for (int i = 0; i < posting.size; i++) {
+                            int id = posting.ids[i];
+                            if (scores[id] != 0) added[id] += posting.frequencies[i];
+                        }
+                    }
+                    for (int c = 0; c < count; c++) {
+                        int id = candidates[c];
+                        scores[id] = added[id] == 0 ? 0 : scores[id] + added[id];
+                        if (added[id] > 0) candidates[kept++] = id;
+                        added[id] = 0;
+                    }
+                }
+                count = kept;
+            }
+            return best(candidates, count, scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Picks the top entries with a heap holding the current worst of them at its head
+    private List<String> best(int[] candidates, int count, int[] scores, int limit) {
+        List<String> titles = contents.titlesById;
+        Comparator<Integer> worstFirst = (a, b) -> compare(b, a, scores, titles);
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(count, limit) + 1, worstFirst);
+        for (int c = 0; c < count; c++) {
+            int id = candidates[c];
+            if (best.size() < limit) {
+                best.add(id);
+            } else if (compare(id, best.peek(), scores, titles) < 0) {
+                best.poll();
+                best.add(id);
+            }
+        }
+        String[] ranked = new String[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = titles.get(best.poll());
+        }
+        return Arrays.asList(ranked);
+    }
+
+    // Higher score first, then by title
+    private static int compare(int a, int b, int[] scores, List<String> titles) {
+        if (scores[a] != scores[b]) return Integer.compare(scores[b], scores[a]);
+        return titles.get(a).compareTo(titles.get(b));
+    }
+
+    /**
+     * Reads the index saved by {@link #save()}. A truncated file keeps the entries read
+     * before the cut. Any other damage discards the whole index and its file, and is then
+     * rethrown; either way the caller reindexes whatever is missing.
+     */
+    void load() throws IOException {
+        lock.writeLock().lock();
+        try {
+            clear();
+            dirty = false;
+            if (Files.notExists(indexFile)) return;
+            try {
+                read();
+            } catch (IOException | RuntimeException e) {
+                clear();
+                Files.deleteIfExists(indexFile);
+                throw new IOException("Search index " + indexFile + " is damaged and will be rebuilt", e);
+            }
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Guarded by the write lock
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != FORMAT_VERSION) return;
+            int documentCount = in.readInt();
+            for (int i = 0; i < documentCount; i++) {
+                String title = in.readUTF();
+                long modified = in.readLong();
+                int termCount = in.readInt();
+                Map<String, Integer> frequencies = new HashMap<>(termCount * 2);
+                for (int t = 0; t < termCount; t++) {
+                    frequencies.put(in.readUTF(), in.readInt());
+                }
+                contents.add(title, modified, frequencies);
+            }
+        } catch (EOFException e) {
+            // Truncated index file; whatever was not read back gets reindexed
+        }
+    }
+
+    void save() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!dirty) return;
+            Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(contents.documents.size());
+                for (Map.Entry<String, IndexedDocument> document : contents.documents.entrySet()) {
+                    out.writeUTF(document.getKey());
+                    out.writeLong(document.getValue().modified());
+                    Map<String, Integer> frequencies = document.getValue().termFrequencies();
+                    out.writeInt(frequencies.size());
+                    for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+                        out.writeUTF(term.getKey());
+                        out.writeInt(term.getValue());
+                    }
+                }
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Splits plain text such as a title or query into lower-cased terms. */
+    static List<String> extractTerms(CharSequence text) {
+        List<String> terms = new ArrayList<>();
+        new HtmlTokenizer(true).tokenizeText(text, (buffer, length) -> terms.add(new String(buffer, 0, length)));
+        return terms;
+    }
+
+    // The forward index, the entry numbers and the posting lists, replaced as a whole on rebuilds
+    private static final class Contents {
+        private final Map<String, IndexedDocument> documents = new HashMap<>();
+        // Indexed by entry number; null where the entry was removed
+        private final List<String> titlesById = new ArrayList<>();
+        private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+
+        // Numbers are handed out in increasing order, which keeps every posting list sorted
+        void add(String title, long modified, Map<String, Integer> frequencies) {
+            int id = titlesById.size();
+            titlesById.add(title);
+            documents.put(title, new IndexedDocument(id, modified, frequencies));
+            for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> new PostingList()).add(id, term.getValue());
+            }
+        }
+
+        boolean remove(String title) {
+            IndexedDocument previous = documents.remove(title);
+            if (previous == null) return false;
+            titlesById.set(previous.id(), null);
+            for (String term : previous.termFrequencies().keySet()) {
+                PostingList posting = postings.get(term);
+                if (posting != null && posting.remove(previous.id()) == 0) postings.remove(term);
+            }
+            return true;
+        }
+
+        Contents renumbered() {
+            Contents renumbered = new Contents();
+            for (Map.Entry<String, IndexedDocument> document : documents.entrySet()) {
+                renumbered.add(document.getKey(), document.getValue().modified(), document.getValue().termFrequencies());
+            }
+            return renumbered;
+        }
+
+        TermMatch match(String prefix) {
+            Collection<PostingList> range = postings.subMap(prefix, prefix + Character.MAX_VALUE).values();
+            int size = 0;
+            for (PostingList posting : range) {
+                size += posting.live;
+            }
+            return new TermMatch(range, size);
+        }
+    }
+
+    /**
+     * Entry numbers in increasing order with the term's frequency in each. A removed entry
+     * keeps its slot with frequency 0 until half the slots are empty.
+     */
+    private static final class PostingList {
+        private int[] ids = new int[2];
+        private int[] frequencies = new int[2];
+        private int size;
+        private int live;
+
+        void add(int id, int frequency) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ids[size] = id;
+            frequencies[size] = frequency;
+            size++;
+            live++;
+        }
+
+        int frequency(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            return i >= 0 ? frequencies[i] : 0;
+        }
+
+        /** Returns how many entries are left. */
+        int remove(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0 || frequencies[i] == 0) return live;
+            frequencies[i] = 0;
+            live--;
+            if (live > 0 && live < size / 2) compact();
+            return live;
+        }
+
+        private void compact() {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (frequencies[i] == 0) continue;
+                ids[kept] = ids[i];
+                frequencies[kept] = frequencies[i];
+                kept++;
+            }
+            size = kept;
+        }
+    }
+}
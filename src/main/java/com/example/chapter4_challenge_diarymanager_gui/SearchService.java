@@ -0,0 +1,100 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs searches in the background. Keystrokes that arrive within the debounce
+ * window replace the pending query instead of queueing behind it, and a result is only
+ * published if no newer query was submitted while it was running.
+ */
+class SearchService {
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private final Function<String, List<EntryMetadata>> searcher;
+    private final Executor queryExecutor;
+    private final Executor resultExecutor;
+    // Only times the debounce window; the queries run on queryExecutor
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile long debounceMillis;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    private final LatencyRecorder latencies = new LatencyRecorder(LATENCY_SAMPLES);
+
+    /**
+     * @param searcher       the query to run, e.g. {@code fileManager::search}
+     * @param queryExecutor  where queries run
+     * @param resultExecutor where results are delivered, e.g. {@code Platform::runLater}
+     * @param debounceMillis how long the input has to be idle before a query runs
+     */
+    SearchService(Function<String, List<EntryMetadata>> searcher, Executor queryExecutor,
+                  Executor resultExecutor, long debounceMillis) {
+        this.searcher = searcher;
+        this.queryExecutor = queryExecutor;
+        this.resultExecutor = resultExecutor;
+        this.debounceMillis = debounceMillis;
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "search-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /** Schedules a search, superseding any query that has not been published yet. */
+    synchronized void submit(String query, Consumer<List<EntryMetadata>> onResult) {
+        long ticket = generation.incrementAndGet();
+        if (pending != null && pending.cancel(false)) {
+            cancelledCount.incrementAndGet();
+        }
+        pending = executor.schedule(() -> queryExecutor.execute(() -> run(ticket, query, onResult)),
+                debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(long ticket, String query, Consumer<List<EntryMetadata>> onResult) {
+        if (ticket != generation.get()) {
+            cancelledCount.incrementAndGet();
+            return;
+        }
+        long start = System.nanoTime();
+        List<EntryMetadata> results = searcher.apply(query);
+        latencies.record(System.nanoTime() - start);
+
+        resultExecutor.execute(() -> {
+            // A newer query may have been typed while this one was running
+            if (ticket == generation.get()) {
+                onResult.accept(results);
+            } else {
+                cancelledCount.incrementAndGet();
+            }
+        });
+    }
+
+    /** Queries waiting for their debounce window to pass. */
+    int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /** Returns the given percentile (0-100) of recent query latencies, in milliseconds. */
+    double getLatencyPercentile(double percentile) {
+        return latencies.getPercentileMillis(percentile);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Startup milestones, measured from process start. "first-frame" is the first pulse that
+ * lays out the window; "interactive" is when the first frame is up and the background
+ * reconcile has finished, so the list and calendar reflect what is on disk.
+ * <p>
+ * With {@code -Ddiary.startup.log=<file>}, once the app is interactive the summary is
+ * printed and appended to that file as one CSV line per launch
+ * ({@code epochMillis,fxmlMs,firstFrameMs,interactiveMs}), for tracking regressions.
+ * Only call from the JavaFX application thread.
+ */
+final class StartupTimer {
+    private static final long START_MILLIS = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+    private static boolean reconciled;
+    private static boolean reported;
+
+    private StartupTimer() {
+    }
+
+    /** Records a milestone the first time it is reached. */
+    static void mark(String milestone) {
+        marks.putIfAbsent(milestone, System.currentTimeMillis() - START_MILLIS);
+        if (milestone.equals("first-frame")) maybeInteractive();
+    }
+
+    /** Called when the background reconcile has finished. */
+    static void reconciled() {
+        reconciled = true;
+        maybeInteractive();
+    }
+
+    /** Milliseconds from process start to the milestone, or -1 if it has not been reached. */
+    static long millisTo(String milestone) {
+        return marks.getOrDefault(milestone, -1L);
+    }
+
+    private static void maybeInteractive() {
+        if (!reconciled || !marks.containsKey("first-frame") || reported) return;
+        mark("interactive");
+        reported = true;
+
+        String log = System.getProperty("diary.startup.log");
+        if (log == null) return;
+        System.out.println("Startup: " + marks);
+        String line = System.currentTimeMillis() + "," + millisTo("fxml") + "," + millisTo("first-frame")
+                + "," + millisTo("interactive") + System.lineSeparator();
+        try {
+            Files.writeString(Paths.get(log), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Keeps an {@link EntryStats} record per entry plus running totals over all of them, so
+ * reading the statistics costs the same no matter how large the diary is. Records are
+ * replaced on save and dropped on delete; the totals are adjusted by the difference.
+ * <p>
+ * Nothing here is persisted: {@link FileManager} fills the aggregator from the metadata
+ * sidecar at startup. New roll-ups belong in {@link #add} and {@link #subtract}, which
+ * see every change. All methods are synchronized.
+ */
+public class StatsAggregator {
+    private static final Comparator<EntryStats> BY_LENGTH =
+            Comparator.comparingInt(EntryStats::getWordCount).thenComparing(EntryStats::getTitle);
+
+    private final Map<String, EntryStats> byTitle = new HashMap<>();
+    private final TreeSet<EntryStats> byLength = new TreeSet<>(BY_LENGTH);
+    private final Map<LocalDate, Integer> entriesPerDay = new HashMap<>();
+    private final Map<LocalDate, Long> wordsPerDay = new HashMap<>();
+    private long totalWords;
+    private long totalChars;
+    private long totalTextLength;
+
+    synchronized void put(EntryStats stats) {
+        remove(stats.getTitle());
+        byTitle.put(stats.getTitle(), stats);
+        add(stats);
+    }
+
+    synchronized void remove(String title) {
+        EntryStats previous = byTitle.remove(title);
+        if (previous != null) {
+            subtract(previous);
+        }
+    }
+
+    synchronized void clear() {
+        byTitle.clear();
+        byLength.clear();
+        entriesPerDay.clear();
+        wordsPerDay.clear();
+        totalWords = 0;
+        totalChars = 0;
+        totalTextLength = 0;
+    }
+
+    public synchronized EntryStats get(String title) {
+        return byTitle.get(title);
+    }
+
+    /** Drops every record whose title is not in the given set. */
+    synchronized void retainOnly(Set<String> titles) {
+        for (String title : new ArrayList<>(byTitle.keySet())) {
+            if (!titles.contains(title)) remove(title);
+        }
+    }
+
+    public synchronized int getEntryCount() { return byTitle.size(); }
+    public synchronized long getTotalWords() { return totalWords; }
+    public synchronized long getTotalChars() { return totalChars; }
+    public synchronized long getTotalTextLength() { return totalTextLength; }
+
+    public synchronized double getAverageWords() {
+        return byTitle.isEmpty() ? 0 : (double) totalWords / byTitle.size();
+    }
+
+    /** The entry with the most words, or null if there are none. */
+    public synchronized EntryStats getLongestEntry() {
+        return byLength.isEmpty() ? null : byLength.last();
+    }
+
+    /** Words in entries created on the given day. */
+    public synchronized long getWordsOn(LocalDate day) {
+        return wordsPerDay.getOrDefault(day, 0L);
+    }
+
+    /** Consecutive days with at least one entry, counting back from {@code today} (or yesterday if today is empty). */
+    public synchronized int getCurrentStreak(LocalDate today) {
+        LocalDate day = entriesPerDay.containsKey(today) ? today : today.minusDays(1);
+        int streak = 0;
+        while (entriesPerDay.containsKey(day)) {
+            streak++;
+            day = day.minusDays(1);
+        }
+        return streak;
+    }
+
+    private void add(EntryStats stats) {
+        byLength.add(stats);
+        LocalDate day = stats.getCreated().toLocalDate();
+        entriesPerDay.merge(day, 1, Integer::sum);
+        wordsPerDay.merge(day, (long) stats.getWordCount(), Long::sum);
+        totalWords += stats.getWordCount();
+        totalChars += stats.getCharCount();
+        totalTextLength += stats.getTextLength();
+    }
+
+    private void subtract(EntryStats stats) {
+        byLength.remove(stats);
+        LocalDate day = stats.getCreated().toLocalDate();
+        if (entriesPerDay.merge(day, -1, Integer::sum) == 0) {
+            entriesPerDay.remove(day);
+            wordsPerDay.remove(day);
+        } else {
+            wordsPerDay.merge(day, (long) -stats.getWordCount(), Long::sum);
+        }
+        totalWords -= stats.getWordCount();
+        totalChars -= stats.getCharCount();
+        totalTextLength -= stats.getTextLength();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import java.util.Objects;
+
+/**
+ * One change to an entry's text: {@code removed} chars at {@code offset} replaced by
+ * {@code inserted}. Offsets and lengths count UTF-16 chars, as {@link String} does.
+ * A list of edits applies in order, each to the text the one before it left.
+ */
+public record TextEdit(int offset, int removed, String inserted) {
+
+    public TextEdit {
+        if (offset < 0 || removed < 0) {
+            throw new IllegalArgumentException("Bad edit at " + offset + " removing " + removed);
+        }
+        Objects.requireNonNull(inserted, "inserted");
+    }
+
+    /** How much longer the text gets; negative if it gets shorter. */
+    public int lengthChange() {
+        return inserted.length() - removed;
+    }
+
+    void applyTo(StringBuilder text) {
+        text.replace(offset, offset + removed, inserted);
+    }
+}
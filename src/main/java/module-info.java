@@ -1,6 +1,7 @@
 module com.example.chapter4_challenge_diarymanager_gui {
     requires javafx.controls;
     requires javafx.fxml;
+    requires javafx.web;
 
 
     opens com.example.chapter4_challenge_diarymanager_gui to javafx.fxml;
@@ -0,0 +1,87 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EditLogTest {
+    private static final long ID = 3;
+    private static final long STAMP = 1_000;
+    private static final String SAVED = "<p>Hello</p>";
+
+    @TempDir
+    Path diaryDir;
+
+    @Test
+    void tornRecordIsDroppedAndOverwritten() throws IOException {
+        Path editsDir = diaryDir.resolve(".edits");
+        EditLog log = new EditLog(editsDir);
+        log.begin(ID, STAMP, SAVED.length());
+        log.append(ID, List.of(new TextEdit(3, 0, "Oh, ")));
+        log.append(ID, List.of(new TextEdit(12, 0, " 👋")));
+        // A record cut off inside its inserted text, as a crash mid-append would leave it
+        ByteBuffer torn = ByteBuffer.allocate(18).putInt(1).putInt(0).putInt(9).put("torn!!".getBytes(StandardCharsets.UTF_8));
+        Files.write(editsDir.resolve(ID + ".log"), torn.array(), StandardOpenOption.APPEND);
+
+        EditLog reopened = new EditLog(editsDir);
+        assertEquals("<p>Oh, Hello 👋</p>", reopened.replay(ID, STAMP, SAVED));
+        assertEquals("<p>Oh, Hello 👋</p>".length(), reopened.length(ID));
+        reopened.append(ID, List.of(new TextEdit(3, 4, "")));
+
+        // The new record went where the torn one was, so it replays too
+        assertEquals("<p>Hello 👋</p>", new EditLog(editsDir).replay(ID, STAMP, SAVED));
+    }
+
+    @Test
+    void damagedRecordEndsTheReplay() throws IOException {
+        Path editsDir = diaryDir.resolve(".edits");
+        EditLog log = new EditLog(editsDir);
+        log.begin(ID, STAMP, SAVED.length());
+        log.append(ID, List.of(new TextEdit(3, 0, "Oh, ")));
+        log.append(ID, List.of(new TextEdit(0, 0, "<hr>")));
+        Path file = editsDir.resolve(ID + ".log");
+        byte[] bytes = Files.readAllBytes(file);
+        // Inside the second record's inserted text, so its checksum no longer matches
+        bytes[bytes.length - 6] ^= 1;
+        Files.write(file, bytes);
+
+        assertEquals("<p>Oh, Hello</p>", new EditLog(editsDir).replay(ID, STAMP, SAVED));
+    }
+
+    @Test
+    void staleBaseIsNotReplayed() throws IOException {
+        EditLog log = new EditLog(diaryDir.resolve(".edits"));
+        log.begin(ID, STAMP, SAVED.length());
+        log.append(ID, List.of(new TextEdit(3, 0, "Oh, ")));
+
+        // The entry was saved again elsewhere, or changed on disk, since the log was started
+        assertNull(log.replay(ID, STAMP + 1, SAVED));
+        assertNull(log.replay(ID, STAMP, "<p>Hello!</p>"));
+        assertEquals("<p>Oh, Hello</p>", log.replay(ID, STAMP, SAVED));
+
+        log.restamp(ID, STAMP + 1);
+        assertNull(log.replay(ID, STAMP, SAVED));
+        assertEquals("<p>Oh, Hello</p>", new EditLog(diaryDir.resolve(".edits")).replay(ID, STAMP + 1, SAVED));
+    }
+
+    @Test
+    void entryWithoutLogReplaysAsSaved() throws IOException {
+        EditLog log = new EditLog(diaryDir.resolve(".edits"));
+        assertEquals(SAVED, log.replay(ID, STAMP, SAVED));
+        log.begin(ID, STAMP, SAVED.length());
+        log.delete(ID);
+        assertEquals(SAVED, log.replay(ID, STAMP + 1, SAVED));
+        assertTrue(log.pendingIds().isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EditTrackerTest {
+    private static final String HEAD = "<html><head></head><body>";
+    private static final String TAIL = "</body></html>";
+
+    @Test
+    void snapshotHoldsTheWholeDocument() {
+        EditTracker tracker = new EditTracker();
+        assertNull(tracker.apply(snapshot("<p>One</p>", "<p>Two</p>")));
+
+        assertTrue(tracker.isTracking());
+        assertEquals(HEAD + "<p>One</p><p>Two</p>" + TAIL, tracker.text());
+        assertFalse(tracker.canAppendEdits("Day"));
+        tracker.savedInFull("Day");
+        assertTrue(tracker.canAppendEdits("Day"));
+        assertFalse(tracker.canAppendEdits("Other day"));
+    }
+
+    @Test
+    void multiHunkReportEditsOnlyWhatChanged() {
+        EditTracker tracker = new EditTracker();
+        tracker.apply(snapshot("<p>A</p>", "<p>B</p>", "<p>C</p>", "<p>D</p>", "<p>E</p>"));
+        String before = tracker.text();
+
+        // B changed, a block was added after C, and E was removed
+        List<TextEdit> edits = tracker.apply("D3;"
+                + "1,1,1;" + chunk("<p>Bee</p>")
+                + "3,0,1;" + chunk("<p>New</p>")
+                + "4,1,0;");
+
+        String after = HEAD + "<p>A</p><p>Bee</p><p>C</p><p>New</p><p>D</p>" + TAIL;
+        assertEquals(after, applied(before, edits));
+        assertEquals(after, tracker.text());
+        assertEquals(new TextEdit(HEAD.length() + 8 + 4, 0, "ee"), edits.get(0));
+        assertTrue(tracker.hasUnsavedEdits());
+
+        // Block numbers in the next report are those of the updated document
+        List<TextEdit> more = tracker.apply("D1;4,1,1;" + chunk("<p>Dee</p>"));
+        assertEquals(after.replace("<p>D</p>", "<p>Dee</p>"), applied(after, more));
+        assertEquals(List.of(), tracker.apply("D1;0,1,1;" + chunk("<p>A</p>")));
+    }
+
+    @Test
+    void trimmingNeverSplitsASurrogatePair() {
+        EditTracker tracker = new EditTracker();
+        tracker.apply(snapshot("<p>a😀b</p>"));
+        int block = HEAD.length() + "<p>a".length();
+
+        // Same high surrogate: the edit still replaces the whole pair
+        List<TextEdit> sameHigh = tracker.apply("D1;0,1,1;" + chunk("<p>a😁b</p>"));
+        assertEquals(List.of(new TextEdit(block, 2, "😁")), sameHigh);
+
+        // Same low surrogate
+        List<TextEdit> sameLow = tracker.apply("D1;0,1,1;" + chunk("<p>a🈁b</p>"));
+        assertEquals(List.of(new TextEdit(block, 2, "🈁")), sameLow);
+        assertEquals(HEAD + "<p>a🈁b</p>" + TAIL, tracker.text());
+    }
+
+    @Test
+    void badReportResetsTheTracker() {
+        EditTracker tracker = new EditTracker();
+        assertThrows(IllegalArgumentException.class, () -> tracker.apply("D1;0,1,1;" + chunk("<p>x</p>")));
+        tracker.apply(snapshot("<p>One</p>"));
+        assertThrows(IllegalArgumentException.class, () -> tracker.apply("D1;5,1,0;"));
+        assertFalse(tracker.isTracking());
+    }
+
+    private static String snapshot(String... blocks) {
+        StringBuilder report = new StringBuilder("R").append(blocks.length + 2).append(';').append(chunk(HEAD));
+        for (String block : blocks) report.append(chunk(block));
+        return report.append(chunk(TAIL)).toString();
+    }
+
+    private static String chunk(String text) {
+        return text.length() + ";" + text;
+    }
+
+    private static String applied(String text, List<TextEdit> edits) {
+        StringBuilder result = new StringBuilder(text);
+        for (TextEdit edit : edits) edit.applyTo(result);
+        return result.toString();
+    }
+}
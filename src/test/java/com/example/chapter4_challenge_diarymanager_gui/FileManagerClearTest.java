@@ -0,0 +1,51 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class FileManagerClearTest {
+    static {
+        // The scan pool has to have several workers for the clear to reach it
+        System.setProperty("diary.scan.threads", "4");
+    }
+
+    @TempDir
+    Path diaryDir;
+
+    // Fails to delete anything, leaving every entry for the clear to pick up again
+    private static final class FailingClearStore extends DirectoryEntryStore {
+        FailingClearStore(Path storageDir) {
+            super(storageDir);
+        }
+
+        @Override
+        public void clear() throws IOException {
+            throw new IOException("disk unplugged");
+        }
+    }
+
+    @Test
+    void partiallyFailedClearReindexesLeftoverEntries() throws IOException {
+        FileManager fileManager = new FileManager(diaryDir, new FailingClearStore(diaryDir));
+        int entries = 200;
+        for (int i = 0; i < entries; i++) {
+            fileManager.saveEntry(new DiaryEntry("Entry " + i, "<p>Left over " + i + "</p>"));
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IOException.class, fileManager::clearAllEntries));
+
+        assertEquals(entries, fileManager.listEntriesMetadata().size());
+        assertEquals(1, fileManager.search("over 123").stream()
+                .filter(metadata -> metadata.getTitle().equals("Entry 123")).count());
+        fileManager.close();
+    }
+}
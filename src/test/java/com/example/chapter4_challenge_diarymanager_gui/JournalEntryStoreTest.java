@@ -0,0 +1,113 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalEntryStoreTest {
+    @TempDir
+    Path diaryDir;
+
+    @Test
+    void tornTailIsTruncatedOnReopen() throws IOException {
+        Path journalDir = diaryDir.resolve("journal");
+        try (JournalEntryStore store = new JournalEntryStore(journalDir)) {
+            store.save("First", "<p>one</p>");
+            store.save("Second", "<p>two</p>");
+        }
+        Path segment = lastSegment(journalDir);
+        long intact = Files.size(segment);
+        // A record cut short after its header, as a crash mid-append would leave it
+        ByteBuffer torn = ByteBuffer.allocate(40).putInt(0xD1A2E7A1).put((byte) 1).putLong(0).putInt(5).putInt(100);
+        Files.write(segment, torn.array(), StandardOpenOption.APPEND);
+
+        try (JournalEntryStore store = new JournalEntryStore(journalDir)) {
+            assertEquals(intact, Files.size(segment));
+            assertEquals("<p>one</p>", store.read("First"));
+            assertEquals("<p>two</p>", store.read("Second"));
+            store.save("Third", "<p>three</p>");
+        }
+        // What was appended after the truncation replays too
+        try (JournalEntryStore store = new JournalEntryStore(journalDir)) {
+            assertEquals(3, store.list().size());
+            assertEquals("<p>three</p>", store.read("Third"));
+        }
+    }
+
+    @Test
+    void deleteSurvivesCompactionAndReopen() throws IOException {
+        Path journalDir = diaryDir.resolve("journal");
+        // Small segments, so the records are spread over several files
+        try (JournalEntryStore store = new JournalEntryStore(journalDir, 256)) {
+            for (int i = 0; i < 20; i++) {
+                store.save("Entry " + i, "<p>" + "text ".repeat(20) + i + "</p>");
+            }
+            assertTrue(store.delete("Entry 3"));
+            store.save("Entry 5", "<p>rewritten</p>");
+            store.compact();
+            assertNull(store.stat("Entry 3"));
+        }
+        try (JournalEntryStore store = new JournalEntryStore(journalDir, 256)) {
+            assertEquals(19, store.list().size());
+            assertNull(store.stat("Entry 3"));
+            assertEquals("<p>rewritten</p>", store.read("Entry 5"));
+            assertTrue(store.delete("Entry 7"));
+        }
+        try (JournalEntryStore store = new JournalEntryStore(journalDir, 256)) {
+            assertEquals(18, store.list().size());
+            assertNull(store.stat("Entry 3"));
+            assertNull(store.stat("Entry 7"));
+        }
+    }
+
+    @Test
+    void directoryIsMigratedOnlyOnce() throws IOException {
+        Files.writeString(diaryDir.resolve("Kept.html"), "<p>kept</p>");
+        Files.writeString(diaryDir.resolve("Deleted.html"), "<p>deleted</p>");
+
+        FileManager fileManager = openJournal();
+        assertEquals(List.of("Deleted", "Kept"), titles(fileManager));
+        assertTrue(Files.exists(diaryDir.resolve("journal").resolve(".migrated")));
+        fileManager.deleteEntry("Deleted");
+        fileManager.close();
+        // Written by hand after the migration, so it is not part of the journal
+        Files.writeString(diaryDir.resolve("Late.html"), "<p>late</p>");
+
+        FileManager reopened = openJournal();
+        assertEquals(List.of("Kept"), titles(reopened));
+        assertFalse(reopened.search("deleted").stream().anyMatch(metadata -> metadata.getTitle().equals("Deleted")));
+        reopened.close();
+    }
+
+    private FileManager openJournal() {
+        System.setProperty("diary.store", "journal");
+        try {
+            return new FileManager(diaryDir);
+        } finally {
+            System.clearProperty("diary.store");
+        }
+    }
+
+    private static List<String> titles(FileManager fileManager) {
+        return fileManager.listEntriesMetadata().stream().map(EntryMetadata::getTitle).sorted().toList();
+    }
+
+    private static Path lastSegment(Path journalDir) throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).sorted().reduce((first, second) -> second)
+                    .orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PieceTableTest {
+    @Test
+    void matchesStringBuilderOverRandomEdits() {
+        Random random = new Random(11);
+        String start = "<html><body><p>The quick brown fox</p></body></html>";
+        PieceTable table = new PieceTable(start);
+        StringBuilder oracle = new StringBuilder(start);
+        int typedUpTo = 0;
+        for (int step = 0; step < 5_000; step++) {
+            int offset = random.nextInt(oracle.length() + 1);
+            int removed = random.nextInt(4) == 0 ? 0 : random.nextInt(Math.min(8, oracle.length() - offset) + 1);
+            String inserted = random.nextInt(3) == 0 ? "" : "ab🦊cd".substring(0, random.nextInt(7));
+            // Sometimes carry on typing where the last edit left off, which extends its piece
+            if (random.nextInt(4) == 0) {
+                offset = typedUpTo;
+                removed = 0;
+            }
+            table.replace(offset, removed, inserted);
+            oracle.replace(offset, offset + removed, inserted);
+            typedUpTo = offset + inserted.length();
+
+            assertEquals(oracle.length(), table.length());
+            int from = random.nextInt(oracle.length() + 1);
+            int to = from + random.nextInt(oracle.length() - from + 1);
+            assertEquals(oracle.substring(from, to), table.substring(from, to));
+            if (step % 500 == 499) {
+                assertEquals(oracle.toString(), table.compact());
+                assertTrue(table.getPieceCount() <= 1);
+            }
+        }
+        assertEquals(oracle.toString(), table.toString());
+    }
+
+    @Test
+    void typingAtOneSpotExtendsOnePiece() {
+        PieceTable table = new PieceTable("<p></p>");
+        for (int i = 0; i < 100; i++) {
+            table.apply(new TextEdit(3 + i, 0, "x"));
+        }
+        assertEquals("<p>" + "x".repeat(100) + "</p>", table.toString());
+        assertEquals(3, table.getPieceCount());
+    }
+
+    @Test
+    void editsOutsideTheTextAreRejected() {
+        PieceTable table = new PieceTable("abc");
+        assertThrows(IndexOutOfBoundsException.class, () -> table.replace(2, 2, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.substring(1, 4));
+        assertEquals("abc", table.toString());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevisionStoreTest {
+    private static final long ID = 7;
+
+    @TempDir
+    Path diaryDir;
+
+    @Test
+    void revisionsRebuildAcrossThinning() throws IOException {
+        Path revisionsDir = diaryDir.resolve(".revisions");
+        RevisionStore store = new RevisionStore(revisionsDir);
+        Map<Integer, String> saved = new HashMap<>();
+        // Half-hourly saves over four days, so thinning has old revisions to drop
+        LocalDateTime start = LocalDateTime.now().minusDays(5);
+        int revisions = 3 * RevisionStore.THIN_INTERVAL + 10;
+        for (int i = 1; i <= revisions; i++) {
+            String content = content(i);
+            store.record(ID, content, start.plusMinutes(30L * i));
+            saved.put(i, content);
+        }
+
+        List<Revision> kept = store.list(ID);
+        assertTrue(kept.size() < revisions, "nothing was thinned");
+        assertEquals(revisions, kept.get(0).getNumber());
+        assertAllReadBack(store, kept, saved);
+
+        // A fresh store parses the rewritten file instead of using the cached history
+        RevisionStore reopened = new RevisionStore(revisionsDir);
+        assertEquals(kept.size(), reopened.list(ID).size());
+        assertAllReadBack(reopened, kept, saved);
+
+        // Deltas written after thinning are against the rewritten newest revision
+        for (int i = revisions + 1; i <= revisions + RevisionStore.KEYFRAME_INTERVAL + 3; i++) {
+            String content = content(i);
+            reopened.record(ID, content, LocalDateTime.now());
+            saved.put(i, content);
+        }
+        assertAllReadBack(new RevisionStore(revisionsDir), reopened.list(ID), saved);
+    }
+
+    private static void assertAllReadBack(RevisionStore store, List<Revision> revisions, Map<Integer, String> saved)
+            throws IOException {
+        for (Revision revision : revisions) {
+            assertEquals(saved.get(revision.getNumber()), store.read(ID, revision.getNumber()),
+                    "revision " + revision.getNumber());
+        }
+    }
+
+    // Mostly small edits that become deltas, with an occasional rewrite of the whole entry
+    private static String content(int revision) {
+        StringBuilder content = new StringBuilder("<p>Café notes 😀</p>");
+        int rewrite = revision / 25;
+        for (int line = 0; line < 30; line++) {
+            content.append("<p>Line ").append(line).append(" of version ").append(rewrite);
+            if (line == revision % 30) content.append(" edited in revision ").append(revision);
+            content.append("</p>");
+        }
+        return content.append("<p>Saved ").append(revision).append(" times</p>").toString();
+    }
+}
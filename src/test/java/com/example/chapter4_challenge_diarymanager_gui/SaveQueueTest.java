@@ -0,0 +1,86 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SaveQueueTest {
+    private static final String TITLE = "Entry";
+    private static final String CONTENT = "<p>Hello</p>";
+
+    @TempDir
+    Path diaryDir;
+
+    private FileManager fileManager;
+    private SaveQueue saveQueue;
+    private final List<EntryMetadata> saved = new ArrayList<>();
+    private final List<IOException> failed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileManager = new FileManager(diaryDir);
+        fileManager.saveEntry(new DiaryEntry(TITLE, CONTENT));
+        saveQueue = new SaveQueue(fileManager, Runnable::run, Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        fileManager.close();
+    }
+
+    @Test
+    void appendedEditsAreReadBack() throws IOException {
+        saveQueue.submitEdits(TITLE, CONTENT.length(), List.of(new TextEdit(3, 0, "Oh, ")), saved::add, failed::add);
+
+        assertEquals(1, saved.size());
+        assertTrue(failed.isEmpty());
+        assertEquals("<p>Oh, Hello</p>", fileManager.readEntry(TITLE));
+    }
+
+    @Test
+    void editPastTheEndFailsWithoutWriting() throws IOException {
+        saveQueue.submitEdits(TITLE, CONTENT.length(), List.of(new TextEdit(CONTENT.length(), 5, "x")),
+                saved::add, failed::add);
+
+        assertTrue(saved.isEmpty());
+        assertEquals(1, failed.size());
+        assertEquals(CONTENT, fileManager.readEntry(TITLE));
+    }
+
+    @Test
+    void editsForOtherContentFail() throws IOException {
+        saveQueue.submitEdits(TITLE, CONTENT.length() + 1, List.of(new TextEdit(0, 0, "x")), saved::add, failed::add);
+
+        assertTrue(saved.isEmpty());
+        assertEquals(1, failed.size());
+        assertEquals(CONTENT, fileManager.readEntry(TITLE));
+    }
+
+    @Test
+    void deleteDropsSaveStillQueued() {
+        Queue<Runnable> writes = new ArrayDeque<>();
+        SaveQueue queue = new SaveQueue(fileManager, writes::add, Runnable::run);
+        queue.submit(new DiaryEntry(TITLE, "<p>Typed just before deleting</p>"), saved::add, failed::add);
+        List<String> deleted = new ArrayList<>();
+        queue.delete(TITLE, () -> deleted.add(TITLE), failed::add);
+
+        while (!writes.isEmpty()) writes.poll().run();
+
+        assertEquals(List.of(TITLE), deleted);
+        assertTrue(saved.isEmpty());
+        assertTrue(failed.isEmpty());
+        assertNull(fileManager.getEntryMetadata(TITLE));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.chapter4_challenge_diarymanager_gui;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+    // Format version and document count come before the first title
+    private static final int FIRST_TITLE_OFFSET = 4 + 4 + 2;
+
+    @TempDir
+    Path diaryDir;
+
+    @Test
+    void damagedIndexIsDiscardedOnLoad() throws IOException {
+        Path indexFile = diaryDir.resolve(".search-index");
+        SearchIndex index = new SearchIndex(indexFile);
+        index.index("First", 1, "<p>alpha</p>");
+        index.save();
+        corrupt(indexFile);
+
+        SearchIndex reopened = new SearchIndex(indexFile);
+        assertThrows(IOException.class, reopened::load);
+        assertFalse(Files.exists(indexFile));
+        assertEquals(List.of(), reopened.search("alpha", 10));
+        assertFalse(reopened.isCurrent("First", 1));
+    }
+
+    @Test
+    void damagedIndexIsRebuiltWhenTheDiaryOpens() throws IOException {
+        FileManager fileManager = new FileManager(diaryDir);
+        for (int i = 0; i < 5; i++) {
+            fileManager.saveEntry(new DiaryEntry("Entry " + i, "<p>alpha " + i + "</p>"));
+        }
+        fileManager.close();
+        corrupt(diaryDir.resolve(".search-index"));
+        Files.writeString(diaryDir.resolve("Synced.html"), "<p>alpha from elsewhere</p>");
+
+        FileManager reopened = new FileManager(diaryDir);
+        assertEquals(6, reopened.listEntriesMetadata().size());
+        assertEquals(6, reopened.search("alpha").size());
+        assertEquals(1, reopened.search("elsewhere").size());
+        reopened.close();
+        assertTrue(Files.exists(diaryDir.resolve(".search-index")));
+    }
+
+    @Test
+    void topResultsMatchAFullRanking() {
+        String[] words = {"sun", "sunday", "supper", "rain", "rainy", "coffee", "cold", "walk"};
+        Random random = new Random(7);
+        SearchIndex index = new SearchIndex(diaryDir.resolve(".search-index"));
+        Map<String, Map<String, Integer>> model = new HashMap<>();
+        // Enough rewrites and deletes to compact posting lists and renumber the entries
+        for (int round = 0; round < 4000; round++) {
+            String title = "Day " + random.nextInt(300);
+            if (random.nextInt(5) == 0) {
+                index.remove(title);
+                model.remove(title);
+                continue;
+            }
+            StringBuilder body = new StringBuilder("<p>");
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (int w = random.nextInt(6); w >= 0; w--) {
+                String word = words[random.nextInt(words.length)];
+                body.append(word).append(' ');
+                frequencies.merge(word, 1, Integer::sum);
+            }
+            index.index(title, round, body.append("</p>"));
+            model.put(title, frequencies);
+        }
+
+        for (String query : List.of("sun", "su", "s", "rain cold", "r c w", "coffee sunday supper", "day")) {
+            List<String> expected = rank(model, query);
+            for (int limit : new int[] {1, 5, 1000}) {
+                assertEquals(expected.subList(0, Math.min(limit, expected.size())), index.search(query, limit),
+                        query + " top " + limit);
+            }
+        }
+        assertEquals(List.of(), index.search("snow", 10));
+    }
+
+    // Scores every entry the slow way: title words weigh five body occurrences
+    private static List<String> rank(Map<String, Map<String, Integer>> model, String query) {
+        Map<String, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> entry : model.entrySet()) {
+            Map<String, Integer> frequencies = new HashMap<>(entry.getValue());
+            for (String word : entry.getKey().toLowerCase().split(" ")) {
+                frequencies.merge(word, 5, Integer::sum);
+            }
+            int score = 0;
+            for (String term : new LinkedHashSet<>(List.of(query.split(" ")))) {
+                int matched = 0;
+                for (Map.Entry<String, Integer> word : frequencies.entrySet()) {
+                    if (word.getKey().startsWith(term)) matched += word.getValue();
+                }
+                if (matched == 0) {
+                    score = 0;
+                    break;
+                }
+                score += matched;
+            }
+            if (score > 0) scores.put(entry.getKey(), score);
+        }
+        List<String> ranked = new ArrayList<>(scores.keySet());
+        ranked.sort(Comparator.comparing((String title) -> -scores.get(title)).thenComparing(Comparator.naturalOrder()));
+        return ranked;
+    }
+
+    // An invalid UTF-8 lead byte makes the first title unreadable
+    private static void corrupt(Path indexFile) throws IOException {
+        byte[] bytes = Files.readAllBytes(indexFile);
+        bytes[FIRST_TITLE_OFFSET] = (byte) 0xFF;
+        Files.write(indexFile, bytes);
+    }
+}